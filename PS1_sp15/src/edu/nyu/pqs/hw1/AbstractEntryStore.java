@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * AbstractEntryStore holds the search and save operations shared by the EntryStore
+ * implementations, written against add(), get() and iteration only. A store loaded with
+ * its readAddressBookFromFile() method can be searched and saved without an AddressBook.
+ * @author Vangie Shue
+ * @see ColumnarEntryStore
+ * @see OffHeapEntryStore
+ */
+abstract class AbstractEntryStore implements EntryStore {
+
+  //Orders views by entry ID, as AddressBook orders its search results.
+  private static final Comparator<EntryView> BY_ID = new Comparator<EntryView>() {
+    @Override
+    public int compare(EntryView a, EntryView b) {
+      return (a.getEntryID() < b.getEntryID()) ? -1
+          : ((a.getEntryID() == b.getEntryID()) ? 0 : 1);
+    }
+  };
+
+  /**
+   * Returns views of all stored entries with a field containing the String, as
+   * AddressBook.searchEntries().
+   * @param s the String which we will search every Entry field for match.
+   * @return List of views of the matching entries, in ID order.
+   */
+  public List<EntryView> searchEntries(String s) {
+    return searchEntries(new EntryQuery.QueryBuilder().substring(s).build());
+  }
+
+  /**
+   * Returns views of all stored entries matching the query. A store keeps no indexes, so
+   * every search is a scan that decodes the selected fields of each entry.
+   * @param query the EntryQuery to run.
+   * @return List of views of the matching entries, in ID order.
+   */
+  public List<EntryView> searchEntries(EntryQuery query) {
+    List<EntryView> matches = new ArrayList<EntryView>();
+    for (EntryView e : this) {
+      if (query.matches(e)) {
+        matches.add(e);
+      }
+    }
+    Collections.sort(matches, BY_ID);
+    return matches;
+  }
+
+  /**
+   * Saves the stored entries to the file at path in the format of
+   * AddressBook.saveAddressBookToFile(), so it can be read back with
+   * AddressBook.readAddressBookFromFile(), MappedAddressBook.open() or the
+   * readAddressBookFromFile() method of a store.
+   * @param path the file which the entries will be saved at.
+   * @throws IOException if the path is invalid or the file cannot be written to.
+   */
+  public void saveAddressBookToFile(String path) throws IOException {
+    final int[] ids = sortedIds();
+    List<EntryView> entries = new AbstractList<EntryView>() {
+      @Override
+      public EntryView get(int index) {
+        return AbstractEntryStore.this.get(ids[index]);
+      }
+      @Override
+      public int size() {
+        return ids.length;
+      }
+    };
+    AddressBookFile.write(path, entries, ids.length);
+  }
+
+  /*
+   * Returns the IDs of the stored entries in ascending order.
+   */
+  private int[] sortedIds() {
+    int[] ids = new int[size()];
+    int i = 0;
+    for (EntryView e : this) {
+      ids[i++] = e.getEntryID();
+    }
+    Arrays.sort(ids);
+    return ids;
+  }
+}
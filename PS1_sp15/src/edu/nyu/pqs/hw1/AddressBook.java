@@ -3,13 +3,16 @@
  */
 
 package edu.nyu.pqs.hw1;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.Future;
 
 /**
  * AddressBook is a service that allows the user to store contacts 
@@ -19,14 +22,296 @@ import java.util.TreeSet;
  */
 public class AddressBook implements Serializable {
 
+  //Pinned to the value of the original class so that previously saved books still load.
+  private static final long serialVersionUID = 3529382764155400112L;
+
   /**
    * AddressBooks use TreeSets in order to maintain an organized set of 
    * AddressBookEntry objects for more efficient searching. 
    */
   private TreeSet<AddressBookEntry> entries;
 
+  /**
+   * The indexes are derived from the entries, so they are not saved with the AddressBook
+   * and are rebuilt when it is read back.
+   */
+  private transient TokenIndex tokenIndex;
+  private transient NGramIndex nGramIndex;
+  private transient SortedFieldIndex nameIndex;
+  private transient SortedFieldIndex emailDomainIndex;
+  private transient SortedFieldIndex phoneIndex;
+  //Finds entries by ID without walking the TreeSet; IDs never change, so it is not an EntryIndex.
+  private transient IntObjectMap<AddressBookEntry> entriesById;
+  //The fuzzy indexes are only built by the first fuzzy search, see enableIndex().
+  private transient BKTreeIndex fuzzyNameIndex;
+  private transient BKTreeIndex fuzzyEmailIndex;
+  private transient List<EntryIndex> indexes;
+  private transient AddressBookEntryListener entryListener;
+  private transient List<AddressBookObserver> observers;
+  private transient List<ListenerDispatcher> dispatchers;
+  //Shares equal field values between entries; null unless setStringPool() was called.
+  private transient StringPool stringPool;
+  //Incremented by every change to the entries, so that cached search results can be dropped.
+  private transient long version;
+  private transient QueryCache queryCache;
+  //Copies the entries changed between snapshots; null until snapshot() is first called.
+  private transient AddressBookSnapshot.Tracker snapshots;
+
   public AddressBook() {
     entries = new TreeSet<AddressBookEntry>();
+    initIndexes();
+  }
+
+  /*
+   * Creates the (empty) indexes and the listener that keeps them in step with entry changes,
+   * and passes field changes on to the observers.
+   */
+  private void initIndexes() {
+    entriesById = new IntObjectMap<AddressBookEntry>();
+    tokenIndex = new TokenIndex();
+    nGramIndex = new NGramIndex();
+    nameIndex = new SortedFieldIndex.NameIndex();
+    emailDomainIndex = new SortedFieldIndex.EmailDomainIndex();
+    phoneIndex = new SortedFieldIndex.PhoneIndex();
+    fuzzyNameIndex = null;
+    fuzzyEmailIndex = null;
+    indexes = new ArrayList<EntryIndex>();
+    indexes.add(tokenIndex);
+    indexes.add(nGramIndex);
+    indexes.add(nameIndex);
+    indexes.add(emailDomainIndex);
+    indexes.add(phoneIndex);
+    observers = new ArrayList<AddressBookObserver>();
+    dispatchers = new ArrayList<ListenerDispatcher>();
+    entryListener = new AddressBookEntryListener() {
+      //The value of the field being changed, so that rejected or no-op changes are not reported.
+      private String oldValue;
+
+      @Override
+      public void fieldChanging(AddressBookEntry e, EntryField field) {
+        oldValue = field.getValue(e);
+      }
+
+      @Override
+      public void fieldChanged(AddressBookEntry e, EntryField field) {
+        version++;
+        StringPool pool = stringPool;
+        if (pool != null && field != EntryField.PHONE_NUMBER) {
+          e.internFields(pool);
+        }
+        if (!field.getValue(e).equals(oldValue)) {
+          for (EntryIndex index : indexes) {
+            index.update(e, field, oldValue);
+          }
+          for (AddressBookObserver o : observers) {
+            o.entryChanged(e, field);
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Registers an observer to be told about every change to this AddressBook.
+   * @param observer the observer to add.
+   */
+  void addObserver(AddressBookObserver observer) {
+    observers.add(observer);
+  }
+
+  /**
+   * Removes an observer previously added with addObserver().
+   * @param observer the observer to remove.
+   */
+  void removeObserver(AddressBookObserver observer) {
+    observers.remove(observer);
+  }
+
+  /**
+   * Allows clients to follow the changes to this AddressBook. The listener is called in
+   * batches on a thread of its own, see AddressBookListener. Listeners are not saved with
+   * the AddressBook.
+   * @param listener the AddressBookListener to add.
+   * @return boolean true if the listener was added, false if it is null or already added.
+   */
+  public boolean addListener(AddressBookListener listener) {
+    if (listener == null || findDispatcher(listener) != null) {
+      return false;
+    }
+    ListenerDispatcher dispatcher = new ListenerDispatcher(listener);
+    dispatchers.add(dispatcher);
+    addObserver(dispatcher);
+    return true;
+  }
+
+  /**
+   * Removes a listener previously added with addListener(). Events of changes made before
+   * the call are still delivered.
+   * @param listener the AddressBookListener to remove.
+   * @return boolean true if the listener was removed.
+   */
+  public boolean removeListener(AddressBookListener listener) {
+    ListenerDispatcher dispatcher = findDispatcher(listener);
+    if (dispatcher == null) {
+      return false;
+    }
+    dispatchers.remove(dispatcher);
+    removeObserver(dispatcher);
+    dispatcher.shutdown();
+    return true;
+  }
+
+  private ListenerDispatcher findDispatcher(AddressBookListener listener) {
+    for (ListenerDispatcher dispatcher : dispatchers) {
+      if (dispatcher.getListener() == listener) {
+        return dispatcher;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Makes the AddressBook share equal name, postal address, email address and note values
+   * between its entries through the pool, starting with the entries already in the book.
+   * Entries added or changed afterwards are interned as well. The pool is not saved with
+   * the AddressBook and has to be set again after the book is read back.
+   * @param pool the StringPool to use, or null to stop interning.
+   */
+  public void setStringPool(StringPool pool) {
+    stringPool = pool;
+    if (pool != null) {
+      for (AddressBookEntry e : entries) {
+        e.internFields(pool);
+      }
+    }
+  }
+
+  /**
+   * Returns the StringPool set with setStringPool().
+   * @return StringPool the pool in use, or null if field values are not interned.
+   */
+  public StringPool getStringPool() {
+    return stringPool;
+  }
+
+  /**
+   * Makes searchEntries() keep its results in the cache and answer repeated searches from
+   * it until the AddressBook changes. The cache is not saved with the AddressBook.
+   * @param cache the QueryCache to use, or null to stop caching.
+   */
+  public void setQueryCache(QueryCache cache) {
+    if (cache != null) {
+      cache.clear();
+    }
+    queryCache = cache;
+  }
+
+  /**
+   * Returns the QueryCache set with setQueryCache(), e.g. to read its hit rate.
+   * @return QueryCache the cache in use, or null if results are not cached.
+   */
+  public QueryCache getQueryCache() {
+    return queryCache;
+  }
+
+  /**
+   * Returns an immutable snapshot of the AddressBook at its current version. The snapshot
+   * can be handed to other threads to search or save while this book keeps changing; it
+   * never sees later changes and never blocks them. Like every other method of the book,
+   * snapshot() itself must be called from the thread that changes the book.
+   * <p>
+   * The first snapshot copies every entry. The book then records which entries change,
+   * and later snapshots only copy those.
+   * @return AddressBookSnapshot of the book as it is now.
+   */
+  public AddressBookSnapshot snapshot() {
+    if (snapshots == null) {
+      snapshots = new AddressBookSnapshot.Tracker(this);
+      addObserver(snapshots);
+    }
+    return snapshots.snapshot();
+  }
+
+  /**
+   * Returns the version of the AddressBook, which is incremented by every change to its
+   * entries. Two calls returning the same value saw the same contents.
+   * @return long the current version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the number of entries in the AddressBook.
+   * @return int the number of entries.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Empties a freshly loaded AddressBook so that its entries can be handed to another kind
+   * of book. The entries are detached from this book's indexes; observers are not told.
+   * @return List of the entries that were in the book, in ID order.
+   */
+  List<AddressBookEntry> releaseEntries() {
+    List<AddressBookEntry> released = new ArrayList<AddressBookEntry>(entries);
+    for (AddressBookEntry e : released) {
+      e.removeEntryListener(entryListener);
+    }
+    if (snapshots != null) {
+      removeObserver(snapshots);
+      snapshots = null;
+    }
+    entries.clear();
+    entriesById.clear();
+    for (EntryIndex index : indexes) {
+      index.clear();
+    }
+    version++;
+    return released;
+  }
+
+  /**
+   * Gives package members read access to the entries in ID order. The AddressBook must not
+   * be changed while they are being iterated over.
+   * @return Iterable over the entries.
+   */
+  Iterable<AddressBookEntry> getEntries() {
+    return Collections.unmodifiableSet(entries);
+  }
+
+  /*
+   * Restores the entries and rebuilds the transient indexes from them.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    initIndexes();
+    for (AddressBookEntry e : entries) {
+      indexEntry(e);
+    }
+  }
+
+  /*
+   * Adds the entry to every index and starts listening for changes to its fields.
+   */
+  private void indexEntry(AddressBookEntry e) {
+    entriesById.put(e.getEntryID(), e);
+    for (EntryIndex index : indexes) {
+      index.add(e);
+    }
+    e.addEntryListener(entryListener);
+  }
+
+  /*
+   * Removes the entry from every index and stops listening for changes to its fields.
+   */
+  private void unindexEntry(AddressBookEntry e) {
+    e.removeEntryListener(entryListener);
+    entriesById.remove(e.getEntryID());
+    for (EntryIndex index : indexes) {
+      index.remove(e);
+    }
   }
   
   /**
@@ -35,10 +320,38 @@ public class AddressBook implements Serializable {
    * @return a boolean indicating whether the AddressBook was able to add the contact.
    */
   public boolean addEntry(AddressBookEntry e) {
-    if (e == null) {
+    if (e == null || entriesById.get(e.getEntryID()) != null) {
       return false;
     }
-    return entries.add(e);
+    entries.add(e);
+    version++;
+    StringPool pool = stringPool;
+    if (pool != null) {
+      e.internFields(pool);
+    }
+    indexEntry(e);
+    for (AddressBookObserver o : observers) {
+      o.entryAdded(e);
+    }
+    return true;
+  }
+
+  /**
+   * Adds a batch of entries, e.g. from a bulk import. Each entry is indexed once with all
+   * of its fields, so filling in entries before adding them is cheaper than adding empty
+   * entries and setting their fields afterwards. Null entries and entries already in the
+   * AddressBook are skipped.
+   * @param batch the AddressBookEntry objects to add.
+   * @return int the number of entries that were added.
+   */
+  public int addEntries(Collection<AddressBookEntry> batch) {
+    int added = 0;
+    for (AddressBookEntry e : batch) {
+      if (addEntry(e)) {
+        added++;
+      }
+    }
+    return added;
   }
 
   /**
@@ -47,50 +360,375 @@ public class AddressBook implements Serializable {
    * @return a boolean indicating whether or not the entry was removed.
    */
   public boolean removeEntry(AddressBookEntry e) {
-    return entries.remove(e);
+    return (e != null) && removeEntry(e.getEntryID());
+  }
+
+  /**
+   * Removes the entry with the given ID, so that callers only need to keep the ID of an
+   * entry rather than the entry itself.
+   * @param id the unique ID of the entry to remove.
+   * @return a boolean indicating whether or not an entry was removed.
+   */
+  public boolean removeEntry(int id) {
+    AddressBookEntry e = entriesById.get(id);
+    if (e == null) {
+      return false;
+    }
+    entries.remove(e);
+    version++;
+    unindexEntry(e);
+    for (AddressBookObserver o : observers) {
+      o.entryRemoved(e);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the entry with the given ID. The lookup takes constant time.
+   * @param id the unique ID of the entry, see AddressBookEntry.getEntryID().
+   * @return AddressBookEntry the entry, or null if the AddressBook does not hold it.
+   */
+  public AddressBookEntry getEntry(int id) {
+    return entriesById.get(id);
+  }
+
+  /**
+   * Sets one field of the entry with the given ID, as if its setter had been called.
+   * @param id the unique ID of the entry to change.
+   * @param field the field to set.
+   * @param value the new value of the field.
+   * @return a boolean indicating whether the AddressBook holds an entry with that ID.
+   * @throws Exception if the field is the email address and value is not a valid address.
+   */
+  public boolean updateEntry(int id, EntryField field, String value) throws Exception {
+    AddressBookEntry e = entriesById.get(id);
+    if (e == null) {
+      return false;
+    }
+    field.setValue(e, value);
+    return true;
   }
   
   /**
    * This method will search all fields of all AddressBookEntry objects in entries. 
    * Any entries that have a parameter containing the string will be returned together as a set.
-   * @param s the String which we will search every Entry field for match. It can be a regex.
+   * It is the same as a substring EntryQuery over all fields, and so uses the trigram index
+   * for Strings of three or more characters.
+   * @param s the String which we will search every Entry field for match.
    * @return TreeSet<Entry> the set of all entries that matched the pattern string.
    */
-  public TreeSet<AddressBookEntry> searchEntries(String regex) {
-    TreeSet<AddressBookEntry> matches = new TreeSet<AddressBookEntry>();
-    for (AddressBookEntry e : entries) {
-      if(e.hasFieldMatch(regex)) {
-        matches.add(e);
+  public TreeSet<AddressBookEntry> searchEntries(String s) {
+    return searchEntries(new EntryQuery.QueryBuilder().substring(s).build());
+  }
+
+  /**
+   * Searches only the fields selected by the query, using its compiled form for every entry.
+   * Queries that require the entry to contain a String of three or more characters (exact,
+   * prefix and substring queries) only check the candidates found by the trigram index.
+   * If a QueryCache is set, a result cached since the last change is returned instead.
+   * @param query the EntryQuery to run.
+   * @return TreeSet<Entry> the set of all entries that matched the query.
+   */
+  public TreeSet<AddressBookEntry> searchEntries(EntryQuery query) {
+    QueryCache cache = queryCache;
+    if (cache != null) {
+      TreeSet<AddressBookEntry> cached = cache.get(query, version);
+      if (cached != null) {
+        return cached;
       }
     }
+    TreeSet<AddressBookEntry> matches = new TreeSet<AddressBookEntry>();
+    Iterator<AddressBookEntry> it = iterateEntries(query);
+    while (it.hasNext()) {
+      matches.add(it.next());
+    }
+    if (cache != null) {
+      cache.put(query, version, matches);
+    }
     return matches;
   }
+
+  /**
+   * Searches the AddressBook with the query using several threads, for queries the indexes
+   * cannot help with (e.g. a regex over all notes). Books with fewer than 10,000 entries
+   * are searched on the calling thread. The AddressBook must not be changed while the
+   * search runs.
+   * @param query the EntryQuery to run.
+   * @return TreeSet<Entry> the set of all entries that matched the query.
+   */
+  public TreeSet<AddressBookEntry> parallelSearchEntries(EntryQuery query) {
+    return ParallelSearch.search(entries, query);
+  }
+
+  /**
+   * Returns one page of the results of searchEntries(s), in ID order. Only as many entries
+   * as needed to fill the page are checked.
+   * @param s the String which we will search every Entry field for match.
+   * @param offset the number of matching entries to skip.
+   * @param limit the maximum number of entries to return.
+   * @return List<Entry> up to limit matching entries.
+   * @throws IllegalArgumentException if offset or limit is negative.
+   */
+  public List<AddressBookEntry> searchEntries(String s, int offset, int limit) {
+    return searchEntries(new EntryQuery.QueryBuilder().substring(s).build(), offset, limit);
+  }
+
+  /**
+   * Returns one page of the results of searchEntries(query), in ID order. The search stops
+   * as soon as the page is full, so a typeahead asking for the first 20 hits only checks
+   * entries until it has found them.
+   * @param query the EntryQuery to run.
+   * @param offset the number of matching entries to skip.
+   * @param limit the maximum number of entries to return.
+   * @return List<Entry> up to limit matching entries.
+   * @throws IllegalArgumentException if offset or limit is negative.
+   */
+  public List<AddressBookEntry> searchEntries(EntryQuery query, int offset, int limit) {
+    if (offset < 0) {
+      throw new IllegalArgumentException("offset cannot be negative.");
+    }
+    checkLimit(limit);
+    List<AddressBookEntry> matches = new ArrayList<AddressBookEntry>();
+    Iterator<AddressBookEntry> it = iterateEntries(query);
+    for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) {
+      it.next();
+    }
+    while (matches.size() < limit && it.hasNext()) {
+      matches.add(it.next());
+    }
+    return matches;
+  }
+
+  /**
+   * Lazily iterates over the entries matching the query, in ID order. Each call to next()
+   * only checks entries until it finds the next match. The AddressBook must not be changed
+   * while the iterator is in use.
+   * @param query the EntryQuery to run.
+   * @return Iterator<Entry> over the matching entries.
+   */
+  public Iterator<AddressBookEntry> iterateEntries(final EntryQuery query) {
+    Iterator<AddressBookEntry> candidates = entries.iterator();
+    String required = query.getRequiredText();
+    if (required != null && required.length() >= NGramIndex.GRAM_LENGTH) {
+      candidates = nGramIndex.candidates(required);
+    }
+    return new FilteringIterator(candidates) {
+      @Override
+      boolean accept(AddressBookEntry e) {
+        return query.matches(e);
+      }
+    };
+  }
+
+  /**
+   * Searches the AddressBook for entries containing every word of the query. A word is a run
+   * of letters or digits and is matched against whole words of the entry fields, ignoring case,
+   * so "smith 212" finds an entry named "John Smith" with a 212 area code but "smi" does not.
+   * The lookup only visits the entries listed under the query words in the word index.
+   * @param query the words to search for.
+   * @return TreeSet<Entry> the set of all entries that contain every word of the query.
+   */
+  public TreeSet<AddressBookEntry> searchEntriesByToken(String query) {
+    return tokenIndex.search(query);
+  }
+
+  /**
+   * Returns the entries whose name starts with the prefix, ignoring case, in name order.
+   * @param prefix the beginning of the name, e.g. "Sm".
+   * @param limit the maximum number of entries to return.
+   * @return List<Entry> up to limit matching entries ordered by name.
+   * @throws IllegalArgumentException if limit is negative.
+   */
+  public List<AddressBookEntry> searchNamePrefix(String prefix, int limit) {
+    checkLimit(limit);
+    return nameIndex.prefix(prefix.toLowerCase(), limit);
+  }
+
+  /**
+   * Returns the entries whose email domain (the part after the "@") starts with the prefix,
+   * ignoring case, in domain order. Passing "nyu.edu" returns all @nyu.edu addresses.
+   * @param prefix the beginning of the email domain.
+   * @param limit the maximum number of entries to return.
+   * @return List<Entry> up to limit matching entries ordered by email domain.
+   * @throws IllegalArgumentException if limit is negative.
+   */
+  public List<AddressBookEntry> searchEmailDomainPrefix(String prefix, int limit) {
+    checkLimit(limit);
+    return emailDomainIndex.prefix(prefix.toLowerCase(), limit);
+  }
+
+  /**
+   * Returns the entries whose phone number starts with the prefix, in phone number order.
+   * The prefix is compared to the stored phone number, which only keeps digits and the
+   * characters accepted by PhoneNumber.
+   * @param prefix the beginning of the phone number, e.g. "212".
+   * @param limit the maximum number of entries to return.
+   * @return List<Entry> up to limit matching entries ordered by phone number.
+   * @throws IllegalArgumentException if limit is negative.
+   */
+  public List<AddressBookEntry> searchPhonePrefix(String prefix, int limit) {
+    checkLimit(limit);
+    return phoneIndex.prefix(prefix, limit);
+  }
+
+  /**
+   * Returns the entries whose name is within maxDistance typing errors of the given name,
+   * ignoring case: each inserted, deleted or replaced character counts as one error, so
+   * "Jon Smtih" finds "John Smith" with a maxDistance of 3. Closer names come first.
+   * @param name the name to look for.
+   * @param maxDistance the largest number of typing errors allowed, e.g. 2.
+   * @return List<Entry> the matching entries, closest first, then by ID.
+   * @throws IllegalArgumentException if maxDistance is negative.
+   */
+  public List<AddressBookEntry> searchNameFuzzy(String name, int maxDistance) {
+    checkDistance(maxDistance);
+    if (fuzzyNameIndex == null) {
+      fuzzyNameIndex = enableIndex(new BKTreeIndex.NameIndex());
+    }
+    return fuzzyNameIndex.search(name.toLowerCase(), maxDistance);
+  }
+
+  /**
+   * Returns the entries whose email address is within maxDistance typing errors of the
+   * given address, ignoring case, closest first.
+   * @param email the email address to look for.
+   * @param maxDistance the largest number of typing errors allowed, e.g. 2.
+   * @return List<Entry> the matching entries, closest first, then by ID.
+   * @throws IllegalArgumentException if maxDistance is negative.
+   */
+  public List<AddressBookEntry> searchEmailFuzzy(String email, int maxDistance) {
+    checkDistance(maxDistance);
+    if (fuzzyEmailIndex == null) {
+      fuzzyEmailIndex = enableIndex(new BKTreeIndex.EmailIndex());
+    }
+    return fuzzyEmailIndex.search(email.toLowerCase(), maxDistance);
+  }
+
+  /**
+   * Lists the entries ordered by name (ignoring case, then by ID), one page at a time.
+   * Pass null to get the first page and the last entry of a page to get the next one.
+   * @param after the last entry of the previous page, or null for the first page.
+   * @param limit the maximum number of entries to return.
+   * @return List<Entry> up to limit entries following after in name order.
+   * @throws IllegalArgumentException if limit is negative.
+   */
+  public List<AddressBookEntry> listEntriesByName(AddressBookEntry after, int limit) {
+    checkLimit(limit);
+    return nameIndex.page(after, limit);
+  }
+
+  /*
+   * Rejects negative result limits.
+   */
+  private static void checkLimit(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit cannot be negative.");
+    }
+  }
+
+  /*
+   * Fills an index from the current entries and keeps it up to date from then on. Indexes
+   * only some searches need are enabled this way, so that books never searched that way
+   * do not pay for them on every change.
+   */
+  private <T extends EntryIndex> T enableIndex(T index) {
+    for (AddressBookEntry e : entries) {
+      index.add(e);
+    }
+    indexes.add(index);
+    return index;
+  }
+
+  private static void checkDistance(int maxDistance) {
+    if (maxDistance < 0) {
+      throw new IllegalArgumentException("maxDistance cannot be negative.");
+    }
+  }
   
   /**
-   * Saves the AddressBook object to the file given by the input parameter, path.
+   * Saves the AddressBook to the file given by the input parameter, path, in the compact
+   * binary format of AddressBookFile: every entry's ID followed by its fields as
+   * length-prefixed UTF-8, written through a buffered FileChannel.
    * @param path the file which the AddressBook object will be saved at.
    * @throws IOException if the path is invalid or the file cannot be written to.
    */
   public void saveAddressBookToFile(String path) throws IOException {
-    FileOutputStream saveFile = new FileOutputStream(path);
-    ObjectOutputStream save = new ObjectOutputStream(saveFile);
-    save.writeObject(this);
-    save.close();
+    AddressBookFile.write(path, entries, entries.size());
+  }
+
+  /**
+   * Saves the AddressBook to the file at path in the block-compressed format of
+   * CompressedAddressBook: runs of entries are Deflate-compressed in blocks of about 64 KB,
+   * with an index of the blocks at the end of the file. Repeated text such as addresses
+   * and email domains makes these files several times smaller than saveAddressBookToFile(),
+   * and a CompressedAddressBook can still read single entries or ranges of IDs from them.
+   * @param path the file which the AddressBook object will be saved at.
+   * @throws IOException if the path is invalid or the file cannot be written to.
+   */
+  public void saveCompressedAddressBookToFile(String path) throws IOException {
+    CompressedAddressBook.write(path, entries, entries.size());
+  }
+
+  /**
+   * Saves the AddressBook to the file at path without blocking the calling thread. A
+   * snapshot of the book is taken on the calling thread and written on a shared I/O thread
+   * to a temporary file, which replaces path once it is complete; the book may be changed
+   * while the save runs. Saves are carried out in the order they were requested.
+   * @param path the file which the AddressBook object will be saved at.
+   * @return Future of the snapshot that was saved. Its get() throws an ExecutionException
+   *     caused by the IOException if the file cannot be written.
+   */
+  public Future<AddressBookSnapshot> saveAddressBookToFileAsync(String path) {
+    return saveAddressBookToFileAsync(path, null);
+  }
+
+  /**
+   * Saves the AddressBook to the file at path without blocking the calling thread, as
+   * saveAddressBookToFileAsync(path), telling the listener how far the save has got.
+   * @param path the file which the AddressBook object will be saved at.
+   * @param listener told how many entries were written so far, or null.
+   * @return Future of the snapshot that was saved.
+   */
+  public Future<AddressBookSnapshot> saveAddressBookToFileAsync(String path,
+      AddressBookProgressListener listener) {
+    return snapshot().saveAddressBookToFileAsync(path, listener);
   }
   
   /**
    * Reads and returns the AddressBook object from the file indicated by the parameter, path.
+   * The binary format written by saveAddressBookToFile(), the block-compressed format
+   * written by saveCompressedAddressBookToFile() and files written with Java serialization
+   * by earlier versions are accepted.
    * @param path the file which we will try to read the AddressBook object from.
-   * @return AddressBook as read by the Object InputStream.
+   * @return AddressBook as read from the file.
    * @throws IOException if the input path is invalid or the file cannot be read.
-   * @throws ClassNotFoundException if the object read is not a valid AddressBook object.
+   * @throws ClassNotFoundException if a serialized file does not hold a valid AddressBook object.
    */
   public static AddressBook readAddressBookFromFile(String path) throws IOException, ClassNotFoundException {
-    FileInputStream inputFile = new FileInputStream(path);
-    ObjectInputStream input = new ObjectInputStream(inputFile);
-    AddressBook fileAddressBook = (AddressBook)input.readObject();
-    input.close();
-    return fileAddressBook;
+    return AddressBookFile.read(path);
+  }
+
+  /**
+   * Reads the AddressBook from the file at path on a shared I/O thread, so that the calling
+   * thread does not wait for the disk.
+   * @param path the file which we will try to read the AddressBook object from.
+   * @return Future of the AddressBook. Its get() throws an ExecutionException caused by the
+   *     exception readAddressBookFromFile() would have thrown if the file cannot be read.
+   */
+  public static Future<AddressBook> readAddressBookFromFileAsync(String path) {
+    return readAddressBookFromFileAsync(path, null);
+  }
+
+  /**
+   * Reads the AddressBook from the file at path on a shared I/O thread, as
+   * readAddressBookFromFileAsync(path), telling the listener how far the load has got.
+   * @param path the file which we will try to read the AddressBook object from.
+   * @param listener told how many entries were read so far, or null.
+   * @return Future of the AddressBook.
+   */
+  public static Future<AddressBook> readAddressBookFromFileAsync(String path,
+      AddressBookProgressListener listener) {
+    return AsyncFileIO.read(path, listener);
   }
 
 }
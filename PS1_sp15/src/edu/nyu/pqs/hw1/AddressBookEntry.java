@@ -3,31 +3,40 @@
  */
 
 package edu.nyu.pqs.hw1;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * AddressBookEntry objects are used to store a single contact's information.
  * They can be saved together in an AddressBook. The class implements Comparable
- * so that AddressBook can compare two AddressBookEntry objects.
+ * so that AddressBook can compare two AddressBookEntry objects, and EntryView so that
+ * queries work the same on entries and on the views of an EntryStore.
  * @author Vangie Shue
  * @see AddressBook
  * @see EmailAddress
  * @see PhoneNumber
  */
-public class AddressBookEntry implements Comparable, Serializable {
-  
+public class AddressBookEntry implements Comparable, EntryView, Serializable {
+
+  //Pinned to the value of the original class so that previously saved books still load.
+  private static final long serialVersionUID = 7345537873612228350L;
+
   /**
    * AddressBookEntry objects can store the contact information in a name, postalAddress,
    * phoneNumber, emailAddress, or note field. While there are no limitations on the String
    * used for the contact's name, postal address or note, they are kept private in case
-   * future updates will set more rigorous standards.
+   * future updates will set more rigorous standards. The fields are volatile so that a
+   * change made by one thread is seen by threads searching a ConcurrentAddressBook.
    */
-  private String name;
-  private String postalAddress;
-  private PhoneNumber phoneNumber;
-  private EmailAddress emailAddress;
-  private String note;
+  private volatile String name;
+  private volatile String postalAddress;
+  private volatile PhoneNumber phoneNumber;
+  private volatile EmailAddress emailAddress;
+  private volatile String note;
 
   /**
    * In order to distinguish AddressBookEntry objects that have the exact same fields above,
@@ -36,6 +45,18 @@ public class AddressBookEntry implements Comparable, Serializable {
   private static AtomicInteger nextId = new AtomicInteger();
   private final int uniqueID;
 
+  /**
+   * The AddressBooks holding this entry listen for field changes so that they can keep
+   * their indexes up to date. Listeners are not saved with the entry; an AddressBook
+   * registers itself again when it is read back. The list is copied on every change, so a
+   * listener may add or remove listeners (e.g. move the entry to another book) while it is
+   * being told about a change. It is volatile so that a setter called on another thread
+   * than the one that added the entry to a book still sees the book's listener.
+   */
+  private transient volatile List<AddressBookEntryListener> listeners;
+  //Set on the copies held by an AddressBookSnapshot, whose fields never change.
+  private transient boolean frozen;
+
   public AddressBookEntry() {
     uniqueID = nextId.incrementAndGet();
     name = "";
@@ -46,19 +67,104 @@ public class AddressBookEntry implements Comparable, Serializable {
   }
 
   /**
-   * Any valid String is currently accepted as a name field.
+   * Creates an empty entry with an ID read back from a saved AddressBook. Entries created
+   * afterwards are given IDs above it, so they never collide with the loaded ones.
+   * @param id the unique ID the entry was saved with.
+   */
+  AddressBookEntry(int id) {
+    uniqueID = id;
+    reserveId(id);
+    name = "";
+    postalAddress = "";
+    phoneNumber = new PhoneNumber("");
+    emailAddress = new EmailAddress();
+    note = "";
+  }
+
+  /**
+   * Returns a new entry with the same ID and field values as this one. The copy is not
+   * part of any AddressBook, so later changes to either entry do not affect the other.
+   * @return AddressBookEntry a detached copy of this entry.
+   */
+  AddressBookEntry copy() {
+    AddressBookEntry e = new AddressBookEntry(uniqueID);
+    e.name = name;
+    e.postalAddress = postalAddress;
+    e.phoneNumber = new PhoneNumber(phoneNumber.getPhoneNumber());
+    e.emailAddress = emailAddress.copy();
+    e.note = note;
+    return e;
+  }
+
+  /**
+   * Returns a copy of this entry whose setters throw UnsupportedOperationException, for
+   * use in an AddressBookSnapshot.
+   * @return AddressBookEntry a frozen copy of this entry.
+   */
+  AddressBookEntry frozenCopy() {
+    AddressBookEntry e = copy();
+    e.frozen = true;
+    return e;
+  }
+
+  /**
+   * Replaces the String fields with the equal instances held by the pool. The values do not
+   * change, so listeners are not told.
+   * @param pool the StringPool to intern the fields in.
+   */
+  void internFields(StringPool pool) {
+    name = pool.intern(name);
+    postalAddress = pool.intern(postalAddress);
+    emailAddress.internEmailAddress(pool);
+    note = pool.intern(note);
+  }
+
+  /*
+   * Moves the ID counter past id if it has not got there yet.
+   */
+  static void reserveId(int id) {
+    int current = nextId.get();
+    while (current < id && !nextId.compareAndSet(current, id)) {
+      current = nextId.get();
+    }
+  }
+
+  /*
+   * Entries read with Java serialization also keep their saved ID.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    reserveId(uniqueID);
+  }
+
+  /**
+   * Any valid String is currently accepted as a name field. A null name is stored as an
+   * empty String.
    * @param s the String which to set the name as.
    */
   public void setName(String s) {
-    name = s;
+    checkNotFrozen();
+    fireFieldChanging(EntryField.NAME);
+    try {
+      name = (s == null) ? "" : s;
+    } finally {
+      fireFieldChanged(EntryField.NAME);
+    }
   }
 
   /**
-   * Any valid String is currently accepted as the postalAddress field.
+   * Any valid String is currently accepted as the postalAddress field. A null address is
+   * stored as an empty String.
    * @param s the String which to set the contact's postal address as.
    */
   public void setPostalAddress(String s) {
-    postalAddress = s;
+    checkNotFrozen();
+    fireFieldChanging(EntryField.POSTAL_ADDRESS);
+    try {
+      postalAddress = (s == null) ? "" : s;
+    } finally {
+      fireFieldChanged(EntryField.POSTAL_ADDRESS);
+    }
   }
 
   /**
@@ -66,7 +172,13 @@ public class AddressBookEntry implements Comparable, Serializable {
    * @param s the String which to set the contact's phone number as.
    */
   public void setPhoneNumber(String s) {
-    phoneNumber.setPhoneNumber(s);
+    checkNotFrozen();
+    fireFieldChanging(EntryField.PHONE_NUMBER);
+    try {
+      phoneNumber.setPhoneNumber(s);
+    } finally {
+      fireFieldChanged(EntryField.PHONE_NUMBER);
+    }
   }
 
   /**
@@ -75,26 +187,98 @@ public class AddressBookEntry implements Comparable, Serializable {
    * @throws Exception if the input string is not a valid email address string.
    */
   public void setEmailAddress(String s) throws Exception {
-    emailAddress.setEmailAddress(s);
+    checkNotFrozen();
+    fireFieldChanging(EntryField.EMAIL_ADDRESS);
+    try {
+      emailAddress.setEmailAddress(s);
+    } finally {
+      fireFieldChanged(EntryField.EMAIL_ADDRESS);
+    }
   }
 
   /**
-   * Any valid String is currently accepted for the note field.
+   * Any valid String is currently accepted for the note field. A null note is stored as
+   * an empty String.
    * @param s the String which to set the contact's note as.
    */
   public void setNote(String s) {
-    note = s;
+    checkNotFrozen();
+    fireFieldChanging(EntryField.NOTE);
+    try {
+      note = (s == null) ? "" : s;
+    } finally {
+      fireFieldChanged(EntryField.NOTE);
+    }
   }
 
   /**
-   * The uniqueID field is only viewable by package members in order to allow for ID checking
-   * in classes that utilize the AddressBookEntry object.
+   * Registers a listener to be told about field changes of this entry.
+   * @param listener the listener to add.
+   */
+  synchronized void addEntryListener(AddressBookEntryListener listener) {
+    List<AddressBookEntryListener> copy = (listeners == null)
+        ? new ArrayList<AddressBookEntryListener>(1)
+        : new ArrayList<AddressBookEntryListener>(listeners);
+    copy.add(listener);
+    listeners = copy;
+  }
+
+  /**
+   * Removes a listener previously added with addEntryListener().
+   * @param listener the listener to remove.
+   */
+  synchronized void removeEntryListener(AddressBookEntryListener listener) {
+    if (listeners != null && listeners.contains(listener)) {
+      List<AddressBookEntryListener> copy = new ArrayList<AddressBookEntryListener>(listeners);
+      copy.remove(listener);
+      listeners = copy;
+    }
+  }
+
+  /*
+   * Entries held by an AddressBookSnapshot cannot be changed.
+   */
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new UnsupportedOperationException("Entries of a snapshot cannot be changed.");
+    }
+  }
+
+  /*
+   * Calls fieldChanging() on all listeners.
+   */
+  private void fireFieldChanging(EntryField field) {
+    List<AddressBookEntryListener> current = listeners;
+    if (current != null) {
+      for (AddressBookEntryListener l : current) {
+        l.fieldChanging(this, field);
+      }
+    }
+  }
+
+  /*
+   * Calls fieldChanged() on all listeners.
+   */
+  private void fireFieldChanged(EntryField field) {
+    List<AddressBookEntryListener> current = listeners;
+    if (current != null) {
+      for (AddressBookEntryListener l : current) {
+        l.fieldChanged(this, field);
+      }
+    }
+  }
+
+  /**
+   * The uniqueID field is read-only. It is public so that clients can look entries up by ID,
+   * e.g. in a MappedAddressBook, and it is kept when the AddressBook is saved and read back.
    * @return int the unique ID of the AddressBookEntry object.
    */
-  int getEntryID() {
+  @Override
+  public int getEntryID() {
     return uniqueID;
   }
 
+  @Override
   public String getName() {
     return name;
   }
@@ -103,6 +287,7 @@ public class AddressBookEntry implements Comparable, Serializable {
    * Because PostalAddress is a protected class, we return the string representation.
    * @return String the postalAddress field as a String.
    */
+  @Override
   public String getPostalAddress() {
     return postalAddress.toString();
   }
@@ -111,18 +296,31 @@ public class AddressBookEntry implements Comparable, Serializable {
    * Because PhoneNumber is a protected class, we return the string representation.
    * @return String the phoneNumber field as a String.
    */
+  @Override
   public String getPhoneNumber() {
     return phoneNumber.getPhoneNumber();
   }
 
+  /**
+   * Returns the phone number reduced to a "+" and ASCII digits, without pauses, waits or
+   * extensions, so that two entries' numbers can be compared regardless of how they were
+   * typed in. The canonical form is computed when the phone number is set.
+   * @return String the canonical phone number, possibly empty.
+   */
+  public String getCanonicalPhoneNumber() {
+    return phoneNumber.getCanonicalNumber();
+  }
+
   /**
    * Because EmailAddress is a protected class, we return the string representation.
    * @return String the emailAddress field as a String.
    */
+  @Override
   public String getEmailAddress() {
     return emailAddress.getEmailAddress();
   }
 
+  @Override
   public String getNote() {
     return note;
   }
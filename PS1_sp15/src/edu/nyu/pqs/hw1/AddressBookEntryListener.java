@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+/**
+ * AddressBookEntryListener objects are told when one of the fields of an AddressBookEntry
+ * is about to change and once it has changed. An AddressBook registers itself on every
+ * entry it holds so that its indexes can drop the old values before the setter runs and
+ * pick up the new values afterwards.
+ * @author Vangie Shue
+ * @see AddressBookEntry
+ * @see AddressBook
+ */
+interface AddressBookEntryListener {
+
+  /**
+   * Called before the field is changed, while the entry still holds its old value.
+   * @param e the entry being changed.
+   * @param field the field that is about to change.
+   */
+  void fieldChanging(AddressBookEntry e, EntryField field);
+
+  /**
+   * Called after the field was changed (or the change was rejected), so every
+   * fieldChanging() call is always followed by one fieldChanged() call.
+   * @param e the entry that was changed.
+   * @param field the field that changed.
+   */
+  void fieldChanged(AddressBookEntry e, EntryField field);
+}
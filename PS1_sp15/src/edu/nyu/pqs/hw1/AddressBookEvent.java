@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * AddressBookEvent describes one change to an AddressBook: an entry was added, removed, or
+ * had some of its fields changed. Events are delivered to an AddressBookListener after the
+ * change, so getEntry() may already show later changes; those are reported by later
+ * events.
+ * @author Vangie Shue
+ * @see AddressBookListener
+ */
+public final class AddressBookEvent {
+
+  /**
+   * The kinds of change to an AddressBook.
+   */
+  public enum Type {
+    /** The entry was added to the AddressBook. */
+    ADDED,
+    /** The entry was removed from the AddressBook. */
+    REMOVED,
+    /** Fields of an entry in the AddressBook changed. */
+    UPDATED
+  }
+
+  private final Type type;
+  private final AddressBookEntry entry;
+  //Only changed while the event waits to be delivered, see ListenerDispatcher.
+  private final EnumSet<EntryField> changedFields;
+
+  AddressBookEvent(Type type, AddressBookEntry entry, EnumSet<EntryField> changedFields) {
+    this.type = type;
+    this.entry = entry;
+    this.changedFields = changedFields;
+  }
+
+  /**
+   * Adds a field to the changed fields of an event that has not been delivered yet.
+   * @param field the field that changed.
+   */
+  void addChangedField(EntryField field) {
+    changedFields.add(field);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public int getEntryID() {
+    return entry.getEntryID();
+  }
+
+  public AddressBookEntry getEntry() {
+    return entry;
+  }
+
+  /**
+   * Returns the fields the event reports as changed: all fields for an added entry, none for
+   * a removed one, and those whose value changed for an updated one.
+   * @return Set<EntryField> the changed fields.
+   */
+  public Set<EntryField> getChangedFields() {
+    return Collections.unmodifiableSet(changedFields);
+  }
+
+  @Override
+  public String toString() {
+    return type + " " + getEntryID() + " " + changedFields;
+  }
+}
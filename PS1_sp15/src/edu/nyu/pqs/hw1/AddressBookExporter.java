@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * AddressBookExporter streams entries to a channel as CSV or JSON Lines, optionally gzip
+ * compressed. Entries are encoded one at a time into a fixed size buffer, so exporting a
+ * book takes the same amount of memory however large it is; exporting a MappedAddressBook
+ * does not even decode more than one entry at a time.
+ * <p>
+ * CSV output has a header row naming the fields (name, postal_address, phone_number,
+ * email_address, note) and follows RFC 4180, so it can be read back with
+ * AddressBookImporter. JSON Lines output has one object per line holding the entry's "id"
+ * and its fields under the same names.
+ * @author Vangie Shue
+ * @see AddressBookImporter
+ */
+public class AddressBookExporter {
+
+  /**
+   * The output formats the exporter can write.
+   */
+  public enum Format {
+    CSV,
+    JSON_LINES
+  }
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private AddressBookExporter() {
+  }
+
+  /**
+   * Writes every entry of the book to the channel, in ID order. The AddressBook must not be
+   * changed while it is being exported. The channel is not closed.
+   * @param book the AddressBook to export.
+   * @param channel the channel to write to.
+   * @param format the format to write.
+   * @param gzip whether to gzip compress the output.
+   * @return int the number of entries written.
+   * @throws IOException if the channel cannot be written to.
+   */
+  public static int exportEntries(AddressBook book, WritableByteChannel channel, Format format,
+      boolean gzip) throws IOException {
+    return exportEntries(book.getEntries(), channel, format, gzip);
+  }
+
+  /**
+   * Writes the entries to the channel in the order they are returned, e.g. the entries of a
+   * MappedAddressBook. The channel is not closed.
+   * @param entries the entries to export.
+   * @param channel the channel to write to.
+   * @param format the format to write.
+   * @param gzip whether to gzip compress the output.
+   * @return int the number of entries written.
+   * @throws IOException if the channel cannot be written to.
+   */
+  public static int exportEntries(Iterable<AddressBookEntry> entries, WritableByteChannel channel,
+      Format format, boolean gzip) throws IOException {
+    OutputStream stream = new UnclosedOutputStream(Channels.newOutputStream(channel));
+    if (gzip) {
+      stream = new GZIPOutputStream(stream, BinaryWriter.BUFFER_SIZE);
+    }
+    Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8),
+        BinaryWriter.BUFFER_SIZE);
+    int count = 0;
+    try {
+      if (format == Format.CSV) {
+        writeCsvHeader(out);
+      }
+      for (AddressBookEntry e : entries) {
+        if (format == Format.CSV) {
+          writeCsv(out, e);
+        } else {
+          writeJson(out, e);
+        }
+        count++;
+      }
+    } finally {
+      //Finishes the gzip stream and frees its Deflater; the channel stays open.
+      out.close();
+    }
+    return count;
+  }
+
+  /**
+   * Passes writes on to the stream it wraps but only flushes it when it is closed, so that
+   * closing the streams of an export does not close the caller's channel.
+   */
+  private static class UnclosedOutputStream extends FilterOutputStream {
+    UnclosedOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.flush();
+    }
+  }
+
+  /*
+   * Writes the column names, which are the EntryField names in lower case.
+   */
+  private static void writeCsvHeader(Writer out) throws IOException {
+    EntryField[] fields = EntryField.values();
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      out.write(fields[i].name().toLowerCase());
+    }
+    out.write("\r\n");
+  }
+
+  /*
+   * Writes one CSV record, quoting the fields that need it.
+   */
+  private static void writeCsv(Writer out, AddressBookEntry e) throws IOException {
+    EntryField[] fields = EntryField.values();
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      String value = fields[i].getValue(e);
+      if (needsQuotes(value)) {
+        out.write('"');
+        for (int j = 0; j < value.length(); j++) {
+          char c = value.charAt(j);
+          if (c == '"') {
+            out.write('"');
+          }
+          out.write(c);
+        }
+        out.write('"');
+      } else {
+        out.write(value);
+      }
+    }
+    out.write("\r\n");
+  }
+
+  private static boolean needsQuotes(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Writes one JSON object on its own line.
+   */
+  private static void writeJson(Writer out, AddressBookEntry e) throws IOException {
+    out.write("{\"id\":");
+    out.write(Integer.toString(e.getEntryID()));
+    for (EntryField field : EntryField.values()) {
+      out.write(",\"");
+      out.write(field.name().toLowerCase());
+      out.write("\":\"");
+      writeJsonString(out, field.getValue(e));
+      out.write('"');
+    }
+    out.write("}\n");
+  }
+
+  /*
+   * Writes the characters of a JSON string, escaping quotes, backslashes and control chars.
+   */
+  private static void writeJsonString(Writer out, String value) throws IOException {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.write('\\');
+        out.write(c);
+      } else if (c == '\n') {
+        out.write("\\n");
+      } else if (c == '\r') {
+        out.write("\\r");
+      } else if (c == '\t') {
+        out.write("\\t");
+      } else if (c < 0x20) {
+        out.write("\\u00");
+        out.write(HEX[c >> 4]);
+        out.write(HEX[c & 0xF]);
+      } else {
+        out.write(c);
+      }
+    }
+  }
+}
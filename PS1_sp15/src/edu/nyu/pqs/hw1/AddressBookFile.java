@@ -0,0 +1,379 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * AddressBookFile reads and writes the binary AddressBook file format:
+ * <pre>
+ *   int    MAGIC
+ *   int    format version
+ *   int    number of entries
+ *   per entry, in ID order:
+ *     int  entry ID
+ *     the name, postal address, phone number, email address and note, each as an int
+ *     UTF-8 byte length followed by the bytes
+ *   offset table (since version 2), one row per entry in ID order:
+ *     int  entry ID
+ *     long file offset of the entry
+ *   long   file offset of the offset table (since version 2)
+ * </pre>
+ * All ints and longs are big-endian. The offset table lets a MappedAddressBook find any
+ * entry without decoding the others; version 1 files, which have no table, can still be
+ * read in full. Files written with Java serialization by earlier versions of
+ * AddressBook are recognized by their stream header and read with an ObjectInputStream,
+ * and block-compressed files by the magic number of CompressedAddressBook.
+ * @author Vangie Shue
+ * @see AddressBook#saveAddressBookToFile(String)
+ * @see AddressBook#readAddressBookFromFile(String)
+ */
+class AddressBookFile {
+
+  //"PQAB"
+  static final int MAGIC = 0x50514142;
+  static final int VERSION = 2;
+  //Size of one row of the offset table: an int ID and a long offset.
+  static final int TABLE_ROW_SIZE = 12;
+  //The first bytes of a Java serialization stream (STREAM_MAGIC and STREAM_VERSION).
+  private static final int SERIALIZED_MAGIC = 0xACED0005;
+  //Progress listeners are told after every this many entries, and once at the end.
+  static final int PROGRESS_INTERVAL = 4096;
+
+  private AddressBookFile() {
+  }
+
+  /**
+   * Writes the entries to the file at path in the binary format, replacing the file.
+   * @param path the file to write.
+   * @param entries the entries to write, in ID order.
+   * @param count the number of entries.
+   * @throws IOException if the file cannot be written.
+   */
+  static void write(String path, Iterable<? extends EntryView> entries, int count)
+      throws IOException {
+    write(path, entries, count, false);
+  }
+
+  /**
+   * Writes the entries to the file at path in the binary format, replacing the file.
+   * @param path the file to write.
+   * @param entries the entries to write, in ID order.
+   * @param count the number of entries.
+   * @param sync whether to force the file to the storage device before returning.
+   * @throws IOException if the file cannot be written.
+   */
+  static void write(String path, Iterable<? extends EntryView> entries, int count, boolean sync)
+      throws IOException {
+    write(path, entries, count, sync, null);
+  }
+
+  /**
+   * Writes the entries to the file at path in the binary format, replacing the file.
+   * @param path the file to write.
+   * @param entries the entries to write, in ID order.
+   * @param count the number of entries.
+   * @param sync whether to force the file to the storage device before returning.
+   * @param listener told how many entries were written so far, or null.
+   * @throws IOException if the file cannot be written.
+   */
+  static void write(String path, Iterable<? extends EntryView> entries, int count, boolean sync,
+      AddressBookProgressListener listener) throws IOException {
+    FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    try {
+      BinaryWriter out = new BinaryWriter(channel);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(count);
+      int[] ids = new int[count];
+      long[] offsets = new long[count];
+      int i = 0;
+      for (EntryView e : entries) {
+        ids[i] = e.getEntryID();
+        offsets[i] = out.position();
+        writeEntry(out, e);
+        i++;
+        if (listener != null && i % PROGRESS_INTERVAL == 0 && i < count) {
+          listener.progress(i, count);
+        }
+      }
+      long tableOffset = out.position();
+      for (i = 0; i < count; i++) {
+        out.writeInt(ids[i]);
+        out.writeLong(offsets[i]);
+      }
+      out.writeLong(tableOffset);
+      out.flush();
+      if (sync) {
+        channel.force(true);
+      }
+    } finally {
+      channel.close();
+    }
+    if (listener != null) {
+      listener.progress(count, count);
+    }
+  }
+
+  /**
+   * Writes the entries to a temporary file next to path, forces it to the storage device
+   * and then moves it over path, so that readers (and a crash) only ever see the old file
+   * or the complete new one.
+   * @param path the file to replace.
+   * @param entries the entries to write, in ID order.
+   * @param count the number of entries.
+   * @param listener told how many entries were written so far, or null.
+   * @throws IOException if the file cannot be written or moved into place.
+   */
+  static void writeAtomically(String path, Iterable<? extends EntryView> entries, int count,
+      AddressBookProgressListener listener) throws IOException {
+    Path target = Paths.get(path);
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    boolean moved = false;
+    try {
+      write(temp.toString(), entries, count, true, listener);
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      moved = true;
+    } finally {
+      if (!moved) {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  /**
+   * Reads an AddressBook from the file at path, which may be in the binary format, the
+   * block-compressed format or a Java serialized AddressBook.
+   * @param path the file to read.
+   * @return AddressBook holding the entries of the file.
+   * @throws IOException if the file cannot be read or is not an AddressBook file.
+   * @throws ClassNotFoundException if a serialized file holds an unknown class.
+   */
+  static AddressBook read(String path) throws IOException, ClassNotFoundException {
+    return read(path, null);
+  }
+
+  /**
+   * Reads an AddressBook from the file at path, which may be in the binary format, the
+   * block-compressed format or a Java serialized AddressBook. Serialized files only report
+   * progress once, at the end.
+   * @param path the file to read.
+   * @param listener told how many entries were read so far, or null.
+   * @return AddressBook holding the entries of the file.
+   * @throws IOException if the file cannot be read or is not an AddressBook file.
+   * @throws ClassNotFoundException if a serialized file holds an unknown class.
+   */
+  static AddressBook read(String path, AddressBookProgressListener listener)
+      throws IOException, ClassNotFoundException {
+    FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    try {
+      int magic = readMagic(channel, path);
+      AddressBook book;
+      if (magic == MAGIC) {
+        book = readBinary(new BinaryReader(channel), listener);
+      } else if (magic == CompressedAddressBook.COMPRESSED_MAGIC) {
+        book = CompressedAddressBook.read(channel, path, listener);
+      } else if (magic == SERIALIZED_MAGIC) {
+        book = readSerialized(channel);
+      } else {
+        throw new IOException("Not an address book file: " + path);
+      }
+      if (listener != null) {
+        listener.progress(book.size(), book.size());
+      }
+      return book;
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Streams the entries of the file at path into the store one at a time, without building
+   * an AddressBook or an AddressBookEntry per entry, so that loading a store never needs
+   * more heap than the store itself. The entries keep their IDs, and entries created
+   * afterwards are given IDs above them.
+   * @param path the file to read, in the binary or the block-compressed format.
+   * @param store the store to add the entries to.
+   * @throws IOException if the file cannot be read, is corrupt, or is a Java serialized
+   *     AddressBook, which can only be read with AddressBook.readAddressBookFromFile().
+   */
+  static void readEntries(String path, EntryStore store) throws IOException {
+    FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    try {
+      int magic = readMagic(channel, path);
+      if (magic == MAGIC) {
+        BinaryReader in = new BinaryReader(channel);
+        int count = readBinaryHeader(in);
+        RecordView record = new RecordView();
+        for (int i = 0; i < count; i++) {
+          record.read(in);
+          store.add(record);
+        }
+      } else if (magic == CompressedAddressBook.COMPRESSED_MAGIC) {
+        CompressedAddressBook.readEntries(channel, path, store);
+      } else if (magic == SERIALIZED_MAGIC) {
+        throw new IOException("Serialized address book files can only be read with "
+            + "AddressBook.readAddressBookFromFile(): " + path);
+      } else {
+        throw new IOException("Not an address book file: " + path);
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  /*
+   * Reads the first four bytes of the file and moves back to its start.
+   */
+  private static int readMagic(FileChannel channel, String path) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(4);
+    while (header.hasRemaining()) {
+      if (channel.read(header) < 0) {
+        throw new IOException("Not an address book file: " + path);
+      }
+    }
+    channel.position(0);
+    return header.getInt(0);
+  }
+
+  /*
+   * Reads the header of the binary format, starting at the magic number, and returns the
+   * number of entries.
+   */
+  private static int readBinaryHeader(BinaryReader in) throws IOException {
+    in.readInt();
+    int version = in.readInt();
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported address book file version: " + version);
+    }
+    return in.readInt();
+  }
+
+  /*
+   * Reads the binary format, starting at the magic number.
+   */
+  private static AddressBook readBinary(BinaryReader in, AddressBookProgressListener listener)
+      throws IOException {
+    int count = readBinaryHeader(in);
+    AddressBook book = new AddressBook();
+    for (int i = 0; i < count; i++) {
+      book.addEntry(readEntry(in));
+      if (listener != null && (i + 1) % PROGRESS_INTERVAL == 0 && i + 1 < count) {
+        listener.progress(i + 1, count);
+      }
+    }
+    return book;
+  }
+
+  /*
+   * Reads an AddressBook written by ObjectOutputStream.writeObject().
+   */
+  private static AddressBook readSerialized(FileChannel channel)
+      throws IOException, ClassNotFoundException {
+    ObjectInputStream input = new ObjectInputStream(
+        new BufferedInputStream(Channels.newInputStream(channel), BinaryWriter.BUFFER_SIZE));
+    Object book = input.readObject();
+    if (!(book instanceof AddressBook)) {
+      throw new IOException("Serialized file does not hold an AddressBook.");
+    }
+    return (AddressBook) book;
+  }
+
+  /**
+   * Writes the ID and the five fields of the entry.
+   * @param out the BinaryWriter to write to.
+   * @param e the entry to write.
+   * @throws IOException if the entry cannot be written.
+   */
+  static void writeEntry(BinaryWriter out, EntryView e) throws IOException {
+    out.writeInt(e.getEntryID());
+    for (EntryField field : EntryField.values()) {
+      out.writeString(field.getValue(e));
+    }
+  }
+
+  /**
+   * Reads an entry written by writeEntry(), keeping its ID.
+   * @param in the BinaryReader to read from.
+   * @return AddressBookEntry the entry read.
+   * @throws IOException if the entry cannot be read or holds an invalid email address.
+   */
+  static AddressBookEntry readEntry(BinaryReader in) throws IOException {
+    AddressBookEntry e = new AddressBookEntry(in.readInt());
+    e.setName(in.readString());
+    e.setPostalAddress(in.readString());
+    e.setPhoneNumber(in.readString());
+    String email = in.readString();
+    e.setNote(in.readString());
+    try {
+      e.setEmailAddress(email);
+    } catch (Exception ex) {
+      throw new IOException("Corrupt address book file: invalid email address " + email);
+    }
+    return e;
+  }
+
+  /**
+   * The fields of one entry as read from a file, reused for every entry while the file is
+   * streamed into an EntryStore. CompressedAddressBook decodes its blocks with it too.
+   */
+  static class RecordView implements EntryView {
+    private int id;
+    private String name;
+    private String postalAddress;
+    private String phoneNumber;
+    private String emailAddress;
+    private String note;
+
+    /*
+     * Reads the next entry written by writeEntry(), reserving its ID.
+     */
+    void read(BinaryReader in) throws IOException {
+      id = in.readInt();
+      AddressBookEntry.reserveId(id);
+      name = in.readString();
+      postalAddress = in.readString();
+      phoneNumber = in.readString();
+      emailAddress = in.readString();
+      note = in.readString();
+    }
+    @Override
+    public int getEntryID() {
+      return id;
+    }
+    @Override
+    public String getName() {
+      return name;
+    }
+    @Override
+    public String getPostalAddress() {
+      return postalAddress;
+    }
+    @Override
+    public String getPhoneNumber() {
+      return phoneNumber;
+    }
+    @Override
+    public String getEmailAddress() {
+      return emailAddress;
+    }
+    @Override
+    public String getNote() {
+      return note;
+    }
+  }
+}
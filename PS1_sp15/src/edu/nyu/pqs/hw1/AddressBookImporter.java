@@ -0,0 +1,435 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AddressBookImporter streams contacts from a CSV or vCard InputStream into an AddressBook.
+ * The input is read once, from start to end, through a single character buffer; each
+ * contact is checked (email address and phone number) before an AddressBookEntry is created
+ * for it, and valid entries are added in batches with AddressBook.addEntries() so each one
+ * is indexed once, with all of its fields. Rows that fail a check are skipped and reported
+ * in the ImportResult instead of throwing, so a bad row costs no more than a good one.
+ * <p>
+ * CSV input must start with a header row naming its columns. The names are matched
+ * ignoring case, spaces and punctuation: "name", "postal address" (or "address"),
+ * "phone number" (or "phone"), "email address" (or "email") and "note" (or "notes");
+ * other columns are ignored. Fields follow RFC 4180, so they may be quoted and quoted
+ * fields may contain commas, line breaks and doubled quotes.
+ * <p>
+ * vCard input may hold any number of cards. FN (or N), ADR, TEL, EMAIL and NOTE are read;
+ * the first occurrence of each wins and all other properties are ignored.
+ * @author Vangie Shue
+ * @see AddressBook#addEntries(java.util.Collection)
+ * @see ImportResult
+ */
+public class AddressBookImporter {
+
+  /**
+   * The input formats the importer understands.
+   */
+  public enum Format {
+    CSV,
+    VCARD
+  }
+
+  //Number of entries collected before they are added to the AddressBook.
+  static final int BATCH_SIZE = 4096;
+  //Returned by readCsvRecord() for a record that ends inside a quoted field. It is only
+  //compared by identity and cannot be modified.
+  private static final List<String> MALFORMED =
+      Collections.unmodifiableList(new ArrayList<String>(0));
+
+  private static final Map<String, EntryField> CSV_COLUMNS = new HashMap<String, EntryField>();
+  static {
+    CSV_COLUMNS.put("name", EntryField.NAME);
+    CSV_COLUMNS.put("fullname", EntryField.NAME);
+    CSV_COLUMNS.put("postaladdress", EntryField.POSTAL_ADDRESS);
+    CSV_COLUMNS.put("address", EntryField.POSTAL_ADDRESS);
+    CSV_COLUMNS.put("phonenumber", EntryField.PHONE_NUMBER);
+    CSV_COLUMNS.put("phone", EntryField.PHONE_NUMBER);
+    CSV_COLUMNS.put("telephone", EntryField.PHONE_NUMBER);
+    CSV_COLUMNS.put("emailaddress", EntryField.EMAIL_ADDRESS);
+    CSV_COLUMNS.put("email", EntryField.EMAIL_ADDRESS);
+    CSV_COLUMNS.put("note", EntryField.NOTE);
+    CSV_COLUMNS.put("notes", EntryField.NOTE);
+  }
+
+  private final AddressBook book;
+  private final CharSource in;
+  private final ImportResult result = new ImportResult();
+  private final List<AddressBookEntry> batch = new ArrayList<AddressBookEntry>(BATCH_SIZE);
+
+  private AddressBookImporter(AddressBook book, Reader reader) {
+    this.book = book;
+    this.in = new CharSource(reader);
+  }
+
+  /**
+   * Reads all contacts from the UTF-8 encoded stream and adds the valid ones to the book.
+   * The stream is read to its end but not closed.
+   * @param book the AddressBook to add the contacts to.
+   * @param input the stream to read.
+   * @param format the format of the stream.
+   * @return ImportResult with the number of contacts added and the rejected rows.
+   * @throws IOException if the stream cannot be read, or a CSV stream has no usable header.
+   */
+  public static ImportResult importEntries(AddressBook book, InputStream input, Format format)
+      throws IOException {
+    AddressBookImporter importer = new AddressBookImporter(book,
+        new InputStreamReader(input, StandardCharsets.UTF_8));
+    if (format == Format.CSV) {
+      importer.importCsv();
+    } else {
+      importer.importVCard();
+    }
+    importer.flush();
+    return importer.result;
+  }
+
+  /*
+   * Reads the header and then every record of a CSV stream.
+   */
+  private void importCsv() throws IOException {
+    List<String> header = readCsvRecord();
+    if (header == null) {
+      return;
+    }
+    if (header == MALFORMED) {
+      throw new IOException("Unterminated quoted field in the CSV header.");
+    }
+    EntryField[] columns = new EntryField[header.size()];
+    boolean known = false;
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = CSV_COLUMNS.get(header.get(i).toLowerCase().replaceAll("[^a-z]", ""));
+      known |= (columns[i] != null);
+    }
+    if (!known) {
+      throw new IOException("CSV header does not name any AddressBookEntry field: " + header);
+    }
+    while (true) {
+      int line = in.line;
+      List<String> record = readCsvRecord();
+      if (record == null) {
+        return;
+      }
+      if (record == MALFORMED) {
+        result.addError(line, "Unterminated quoted field.");
+        continue;
+      }
+      if (record.size() == 1 && record.get(0).isEmpty()) {
+        //Blank line
+        continue;
+      }
+      String[] values = new String[EntryField.values().length];
+      for (int i = 0; i < columns.length && i < record.size(); i++) {
+        if (columns[i] != null) {
+          values[columns[i].ordinal()] = record.get(i);
+        }
+      }
+      addContact(line, values);
+    }
+  }
+
+  /*
+   * Reads the fields of the next CSV record. Returns null at the end of the stream.
+   */
+  private List<String> readCsvRecord() throws IOException {
+    int c = in.read();
+    if (c < 0) {
+      return null;
+    }
+    List<String> fields = new ArrayList<String>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c < 0) {
+          return MALFORMED;
+        } else if (c == '"') {
+          if (in.peek() == '"') {
+            in.read();
+            field.append('"');
+          } else {
+            quoted = false;
+          }
+        } else {
+          field.append((char) c);
+        }
+      } else if (c < 0 || c == '\n') {
+        break;
+      } else if (c == '\r') {
+        if (in.peek() == '\n') {
+          in.read();
+        }
+        break;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '"' && field.length() == 0) {
+        quoted = true;
+      } else {
+        field.append((char) c);
+      }
+      c = in.read();
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /*
+   * Reads the cards of a vCard stream, unfolding continuation lines as it goes.
+   */
+  private void importVCard() throws IOException {
+    String[] values = null;
+    int cardLine = 0;
+    int lineNumber = in.line;
+    String next = in.readLine();
+    while (next != null) {
+      int startLine = lineNumber;
+      StringBuilder logical = new StringBuilder(next);
+      lineNumber = in.line;
+      next = in.readLine();
+      while (next != null && !next.isEmpty()
+          && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+        logical.append(next, 1, next.length());
+        lineNumber = in.line;
+        next = in.readLine();
+      }
+      String line = logical.toString();
+      if (line.equalsIgnoreCase("BEGIN:VCARD")) {
+        values = new String[EntryField.values().length];
+        cardLine = startLine;
+      } else if (line.equalsIgnoreCase("END:VCARD")) {
+        if (values != null) {
+          addContact(cardLine, values);
+          values = null;
+        }
+      } else if (values != null) {
+        readVCardProperty(line, values);
+      }
+    }
+    if (values != null) {
+      result.addError(cardLine, "Card is missing END:VCARD.");
+    }
+  }
+
+  /*
+   * Stores the value of a property line in values if it is one of the fields and has not
+   * been seen yet in this card.
+   */
+  private static void readVCardProperty(String line, String[] values) {
+    int colon = line.indexOf(':');
+    if (colon < 0) {
+      return;
+    }
+    String name = line.substring(0, colon);
+    int semicolon = name.indexOf(';');
+    if (semicolon >= 0) {
+      name = name.substring(0, semicolon);
+    }
+    //Drop a group prefix such as "item1."
+    name = name.substring(name.lastIndexOf('.') + 1).toUpperCase();
+    String value = line.substring(colon + 1);
+    if (name.equals("FN")) {
+      values[EntryField.NAME.ordinal()] = unescape(value);
+    } else if (name.equals("N")) {
+      //N is Family;Given;Additional;Prefix;Suffix and is only used if there is no FN.
+      if (values[EntryField.NAME.ordinal()] == null) {
+        List<String> parts = splitComponents(value);
+        String given = parts.size() > 1 ? parts.get(1) : "";
+        values[EntryField.NAME.ordinal()] = (given + " " + parts.get(0)).trim();
+      }
+    } else {
+      EntryField field = null;
+      if (name.equals("ADR")) {
+        field = EntryField.POSTAL_ADDRESS;
+        StringBuilder address = new StringBuilder();
+        for (String part : splitComponents(value)) {
+          if (!part.isEmpty()) {
+            address.append(address.length() == 0 ? "" : ", ").append(part);
+          }
+        }
+        value = address.toString();
+      } else if (name.equals("TEL")) {
+        field = EntryField.PHONE_NUMBER;
+        value = unescape(value);
+      } else if (name.equals("EMAIL")) {
+        field = EntryField.EMAIL_ADDRESS;
+        value = unescape(value);
+      } else if (name.equals("NOTE")) {
+        field = EntryField.NOTE;
+        value = unescape(value);
+      }
+      if (field != null && values[field.ordinal()] == null) {
+        values[field.ordinal()] = value;
+      }
+    }
+  }
+
+  /*
+   * Splits a structured vCard value on unescaped semicolons and unescapes each component.
+   */
+  private static List<String> splitComponents(String value) {
+    List<String> parts = new ArrayList<String>();
+    int start = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == ';') {
+        parts.add(unescape(value.substring(start, i)).trim());
+        start = i + 1;
+      }
+    }
+    parts.add(unescape(value.substring(start)).trim());
+    return parts;
+  }
+
+  /*
+   * Resolves the backslash escapes of a vCard text value.
+   */
+  private static String unescape(String value) {
+    if (value.indexOf('\\') < 0) {
+      return value;
+    }
+    StringBuilder s = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' && i + 1 < value.length()) {
+        c = value.charAt(++i);
+        s.append((c == 'n' || c == 'N') ? '\n' : c);
+      } else {
+        s.append(c);
+      }
+    }
+    return s.toString();
+  }
+
+  /*
+   * Checks a contact and, if it is valid, queues an entry for it. Values are indexed by
+   * EntryField ordinal; null means the input did not have the field.
+   */
+  private void addContact(int line, String[] values) {
+    String email = valueOf(values, EntryField.EMAIL_ADDRESS).trim();
+    if (!EmailAddress.validateEmailAddress(email)) {
+      result.addError(line, "Invalid email address: " + email);
+      return;
+    }
+    String phone = valueOf(values, EntryField.PHONE_NUMBER).trim();
+    if (!phone.isEmpty() && PhoneNumber.convertToPhoneNumber(phone).isEmpty()) {
+      result.addError(line, "Invalid phone number: " + phone);
+      return;
+    }
+    AddressBookEntry e = new AddressBookEntry();
+    e.setName(valueOf(values, EntryField.NAME));
+    e.setPostalAddress(valueOf(values, EntryField.POSTAL_ADDRESS));
+    e.setPhoneNumber(phone);
+    e.setNote(valueOf(values, EntryField.NOTE));
+    try {
+      e.setEmailAddress(email);
+    } catch (Exception ex) {
+      //Not reached: the address was validated above.
+      result.addError(line, ex.getMessage());
+      return;
+    }
+    batch.add(e);
+    if (batch.size() >= BATCH_SIZE) {
+      flush();
+    }
+  }
+
+  private static String valueOf(String[] values, EntryField field) {
+    String value = values[field.ordinal()];
+    return (value == null) ? "" : value;
+  }
+
+  /*
+   * Adds the queued entries to the AddressBook.
+   */
+  private void flush() {
+    result.addImported(book.addEntries(batch));
+    batch.clear();
+  }
+
+  /**
+   * CharSource reads characters through its own buffer, without the per-character locking
+   * of BufferedReader, and counts lines as it goes.
+   */
+  private static class CharSource {
+    private final Reader reader;
+    private final char[] buffer = new char[BinaryWriter.BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    //The line of the next character to be read, starting at 1.
+    private int line = 1;
+
+    CharSource(Reader reader) {
+      this.reader = reader;
+    }
+
+    int read() throws IOException {
+      if (position == limit && !fill()) {
+        return -1;
+      }
+      char c = buffer[position++];
+      if (c == '\n') {
+        line++;
+      }
+      return c;
+    }
+
+    int peek() throws IOException {
+      if (position == limit && !fill()) {
+        return -1;
+      }
+      return buffer[position];
+    }
+
+    /*
+     * Reads up to the next line break, which may be \n, \r\n or \r. Returns null at the end.
+     */
+    String readLine() throws IOException {
+      int c = read();
+      if (c < 0) {
+        return null;
+      }
+      StringBuilder s = new StringBuilder();
+      while (c >= 0 && c != '\n') {
+        if (c == '\r') {
+          if (peek() == '\n') {
+            read();
+          } else {
+            line++;
+          }
+          break;
+        }
+        s.append((char) c);
+        c = read();
+      }
+      return s.toString();
+    }
+
+    private boolean fill() throws IOException {
+      int n = reader.read(buffer, 0, buffer.length);
+      if (n <= 0) {
+        return false;
+      }
+      position = 0;
+      limit = n;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,470 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * AddressBookJournal persists an AddressBook incrementally. Every addEntry(), removeEntry()
+ * and field change is appended to a journal file as a small checksummed record, so a change
+ * costs one short write instead of rewriting the whole book. Once the journal holds
+ * compactionThreshold records, it is rotated and a snapshot of the book is written in the
+ * background with AddressBookFile; the rotated journal is deleted once the snapshot is safely
+ * in place. The change that reaches the threshold never waits for the snapshot: the entries
+ * are taken from the book's incremental AddressBookSnapshot, which only copies the entries
+ * changed since the last compaction, and if the previous snapshot is still being written the
+ * compaction is simply started by a later change. Opening a journal loads the last snapshot
+ * and replays the journal tail.
+ * <p>
+ * Journal records are:
+ * <pre>
+ *   int    CRC32 of the payload
+ *   int    payload length
+ *   byte   record type (ADD, REMOVE or UPDATE)
+ *   int    entry ID
+ *   ADD:    the five fields as length-prefixed UTF-8, as in AddressBookFile
+ *   UPDATE: byte EntryField ordinal, then the new value as length-prefixed UTF-8
+ * </pre>
+ * A record cut short by a crash fails its checksum and is dropped, along with anything after
+ * it, when the journal is opened. Writes reach the operating system immediately; call sync()
+ * to force them to the storage device.
+ * <p>
+ * Changes are journaled after the AddressBook has made them, so a failed write cannot undo
+ * the change. Instead the failure is recorded, nothing more is journaled, and sync() and
+ * close() throw it. A failed background snapshot is thrown by the next sync(),
+ * awaitCompaction() or close(); automatic compaction then stops until compact() is called.
+ * <p>
+ * The AddressBook itself is not thread-safe, so it must only be changed by one thread at a
+ * time; compact() must be called from that thread too. The background snapshot only works on
+ * the frozen entries of an AddressBookSnapshot.
+ * @author Vangie Shue
+ * @see AddressBook
+ * @see AddressBookFile
+ */
+public class AddressBookJournal implements Closeable {
+
+  //"PQAJ"
+  static final int MAGIC = 0x5051414A;
+  static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+
+  private static final int ADD = 1;
+  private static final int REMOVE = 2;
+  private static final int UPDATE = 3;
+
+  public static final int DEFAULT_COMPACTION_THRESHOLD = 100000;
+
+  private final AddressBook book;
+  private final Path snapshotPath;
+  private final Path journalPath;
+  private final Path oldJournalPath;
+  private FileChannel journal;
+  private int records;
+  private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+  private Future<Void> pendingCompaction = null;
+  //Set while a rotated journal exists; cleared by the compactor once it is deleted.
+  private volatile boolean rotated;
+  //The first failed journal write; once set, nothing more is journaled.
+  private IOException writeFailure = null;
+  private final ExecutorService compactor = Executors.newSingleThreadExecutor(
+      new DaemonThreadFactory("AddressBookJournal compactor"));
+
+  private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+  private final BinaryWriter payloadWriter = new BinaryWriter(Channels.newChannel(payload));
+  private final CRC32 crc = new CRC32();
+
+  private final AddressBookObserver observer = new AddressBookObserver() {
+    @Override
+    public void entryAdded(AddressBookEntry e) {
+      append(ADD, e, null);
+    }
+
+    @Override
+    public void entryRemoved(AddressBookEntry e) {
+      append(REMOVE, e, null);
+    }
+
+    @Override
+    public void entryChanged(AddressBookEntry e, EntryField field) {
+      append(UPDATE, e, field);
+    }
+  };
+
+  private AddressBookJournal(AddressBook book, Path snapshotPath, Path journalPath,
+      FileChannel journal, int records) {
+    this.book = book;
+    this.snapshotPath = snapshotPath;
+    this.journalPath = journalPath;
+    this.oldJournalPath = oldJournalPath(journalPath);
+    this.journal = journal;
+    this.records = records;
+    this.rotated = Files.exists(oldJournalPath);
+    //Start tracking changes now, so that compactions only copy the entries that changed.
+    book.snapshot();
+    book.addObserver(observer);
+  }
+
+  /**
+   * Loads the AddressBook from the snapshot and journal files, creating them if they do not
+   * exist yet, and starts journaling every change made to it.
+   * @param snapshotPath the AddressBook file holding the last snapshot.
+   * @param journalPath the file changes are appended to.
+   * @return AddressBookJournal attached to the loaded AddressBook.
+   * @throws IOException if the files cannot be read or written.
+   */
+  public static AddressBookJournal open(String snapshotPath, String journalPath)
+      throws IOException {
+    Path snapshot = Paths.get(snapshotPath);
+    Path active = Paths.get(journalPath);
+    Path old = oldJournalPath(active);
+    AddressBook book = new AddressBook();
+    if (Files.exists(snapshot)) {
+      try {
+        book = AddressBook.readAddressBookFromFile(snapshotPath);
+      } catch (ClassNotFoundException ex) {
+        throw new IOException("Snapshot does not hold an AddressBook: " + snapshotPath, ex);
+      }
+    }
+    int records = 0;
+    if (Files.exists(old)) {
+      replay(old, book);
+    }
+    long validLength = HEADER_SIZE;
+    if (Files.exists(active)) {
+      long[] result = replay(active, book);
+      validLength = result[0];
+      records = (int) result[1];
+    }
+    FileChannel channel = FileChannel.open(active, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (channel.size() < HEADER_SIZE) {
+      writeHeader(channel);
+    } else {
+      //Drop a record torn by a crash so new records follow the last valid one.
+      channel.truncate(validLength);
+      channel.position(validLength);
+    }
+    AddressBookJournal j = new AddressBookJournal(book, snapshot, active, channel, records);
+    if (Files.exists(old)) {
+      //A previous compaction did not finish; fold both journals into a new snapshot now.
+      j.compactInPlace();
+    }
+    return j;
+  }
+
+  /**
+   * Returns the AddressBook whose changes are being journaled.
+   * @return AddressBook the journaled book.
+   */
+  public AddressBook getAddressBook() {
+    return book;
+  }
+
+  /**
+   * Sets the number of journal records after which the journal is compacted automatically.
+   * @param threshold the number of records, at least 1.
+   * @throws IllegalArgumentException if threshold is less than 1.
+   */
+  public synchronized void setCompactionThreshold(int threshold) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("Compaction threshold must be at least 1.");
+    }
+    compactionThreshold = threshold;
+  }
+
+  /**
+   * Forces the journal to the storage device.
+   * @throws IOException if a journal write failed, the journal cannot be forced, or a
+   *     finished background compaction failed.
+   */
+  public synchronized void sync() throws IOException {
+    checkWriteFailure();
+    journal.force(false);
+    if (pendingCompaction != null && pendingCompaction.isDone()) {
+      awaitCompaction();
+    }
+  }
+
+  /**
+   * Starts a compaction: the current journal is rotated and a snapshot of the book is
+   * written to the snapshot file by a background thread. The rotated journal is deleted once
+   * the new snapshot has replaced the old one. A compaction still running is waited for
+   * first; if an earlier one failed, the snapshot is written on the calling thread instead.
+   * @throws IOException if a journal write failed, the journal cannot be rotated or a
+   *     previous compaction failed.
+   */
+  public synchronized void compact() throws IOException {
+    checkWriteFailure();
+    awaitCompaction();
+    if (rotated) {
+      compactInPlace();
+      return;
+    }
+    startCompaction();
+  }
+
+  /*
+   * Rotates the journal and writes a snapshot of the book in the background. Only the
+   * entries changed since the last snapshot are copied on the calling thread.
+   */
+  private void startCompaction() throws IOException {
+    final AddressBookSnapshot snapshot = book.snapshot();
+    journal.force(false);
+    journal.close();
+    Files.move(journalPath, oldJournalPath, StandardCopyOption.ATOMIC_MOVE);
+    rotated = true;
+    journal = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    writeHeader(journal);
+    records = 0;
+    pendingCompaction = compactor.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws IOException {
+        writeSnapshot(snapshot);
+        Files.deleteIfExists(oldJournalPath);
+        rotated = false;
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Waits for a compaction started by compact() to finish.
+   * @throws IOException if the compaction failed or the wait was interrupted.
+   */
+  public synchronized void awaitCompaction() throws IOException {
+    if (pendingCompaction == null) {
+      return;
+    }
+    try {
+      pendingCompaction.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for compaction.");
+    } catch (ExecutionException ex) {
+      throw new IOException("Compaction failed.", ex.getCause());
+    } finally {
+      pendingCompaction = null;
+    }
+  }
+
+  /**
+   * Waits for any compaction, forces the journal to the storage device and stops journaling
+   * changes to the AddressBook.
+   * @throws IOException if a journal write failed, the journal cannot be forced or the
+   *     compaction failed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    book.removeObserver(observer);
+    try {
+      awaitCompaction();
+      journal.force(false);
+    } finally {
+      journal.close();
+      compactor.shutdown();
+    }
+    checkWriteFailure();
+  }
+
+  /*
+   * Throws the failure of an earlier journal write.
+   */
+  private void checkWriteFailure() throws IOException {
+    if (writeFailure != null) {
+      throw new IOException("Could not write to the AddressBook journal.", writeFailure);
+    }
+  }
+
+  /*
+   * Writes the snapshot and clears both journals, all on the calling thread. Used when a
+   * rotated journal is still around, since rotating again would overwrite it.
+   */
+  private void compactInPlace() throws IOException {
+    writeSnapshot(book.snapshot());
+    Files.deleteIfExists(oldJournalPath);
+    rotated = false;
+    journal.truncate(HEADER_SIZE);
+    journal.position(HEADER_SIZE);
+    records = 0;
+  }
+
+  /*
+   * Writes the snapshot to a temporary file next to the snapshot file and moves it into place.
+   */
+  private void writeSnapshot(AddressBookSnapshot snapshot) throws IOException {
+    AddressBookFile.writeAtomically(snapshotPath.toString(), snapshot.getEntries(),
+        snapshot.size(), null);
+  }
+
+  /*
+   * Appends one record for a change to the book. Once the threshold is reached and no
+   * compaction is running, the journal is rotated first, so that the record lands in the new
+   * journal whether or not the snapshot already holds the change; replaying it is harmless.
+   * Changes are reported by the AddressBook after they were made, so a failure is recorded
+   * for sync() and close() rather than thrown at the other observers.
+   */
+  private synchronized void append(int type, AddressBookEntry e, EntryField field) {
+    if (writeFailure != null) {
+      return;
+    }
+    try {
+      if (records >= compactionThreshold && !rotated
+          && (pendingCompaction == null || pendingCompaction.isDone())) {
+        //A finished compaction that cleared rotated succeeded, so there is nothing to report.
+        pendingCompaction = null;
+        startCompaction();
+      }
+      payload.reset();
+      payloadWriter.writeByte(type);
+      payloadWriter.writeInt(e.getEntryID());
+      if (type == ADD) {
+        for (EntryField f : EntryField.values()) {
+          payloadWriter.writeString(f.getValue(e));
+        }
+      } else if (type == UPDATE) {
+        payloadWriter.writeByte(field.ordinal());
+        payloadWriter.writeString(field.getValue(e));
+      }
+      payloadWriter.flush();
+      byte[] bytes = payload.toByteArray();
+      crc.reset();
+      crc.update(bytes, 0, bytes.length);
+      ByteBuffer record = ByteBuffer.allocate(8 + bytes.length);
+      record.putInt((int) crc.getValue());
+      record.putInt(bytes.length);
+      record.put(bytes);
+      record.flip();
+      while (record.hasRemaining()) {
+        journal.write(record);
+      }
+      records++;
+    } catch (IOException ex) {
+      writeFailure = ex;
+    }
+  }
+
+  /*
+   * Applies the records of a journal file to the book. Stops at the first record that is
+   * incomplete or fails its checksum. Returns the length of the valid part of the file and
+   * the number of records applied.
+   */
+  private static long[] replay(Path path, AddressBook book) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        return new long[] {HEADER_SIZE, 0};
+      }
+      BinaryReader in = new BinaryReader(channel);
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not an address book journal: " + path);
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported address book journal version: " + version);
+      }
+      long valid = HEADER_SIZE;
+      long applied = 0;
+      CRC32 crc = new CRC32();
+      while (valid + 8 <= size) {
+        int checksum = in.readInt();
+        int length = in.readInt();
+        if (length < 0 || valid + 8 + length > size) {
+          break;
+        }
+        byte[] bytes = in.readBytes(length);
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+        apply(bytes, book);
+        valid += 8 + length;
+        applied++;
+      }
+      return new long[] {valid, applied};
+    } finally {
+      channel.close();
+    }
+  }
+
+  /*
+   * Applies a single record. Replaying a record that is already reflected in the book leaves
+   * it unchanged, so a journal can safely be replayed on top of a newer snapshot.
+   */
+  private static void apply(byte[] bytes, AddressBook book) throws IOException {
+    BinaryReader in = new BinaryReader(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    int type = in.readByte();
+    int id = in.readInt();
+    try {
+      if (type == ADD) {
+        AddressBookEntry e = book.getEntry(id);
+        boolean isNew = (e == null);
+        if (isNew) {
+          e = new AddressBookEntry(id);
+        }
+        for (EntryField field : EntryField.values()) {
+          field.setValue(e, in.readString());
+        }
+        if (isNew) {
+          book.addEntry(e);
+        }
+      } else if (type == REMOVE) {
+        book.removeEntry(id);
+      } else if (type == UPDATE) {
+        int ordinal = in.readByte();
+        if (ordinal >= EntryField.values().length) {
+          throw new IOException("Corrupt address book journal: unknown field " + ordinal);
+        }
+        String value = in.readString();
+        book.updateEntry(id, EntryField.values()[ordinal], value);
+      } else {
+        throw new IOException("Corrupt address book journal: unknown record type " + type);
+      }
+    } catch (IOException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new IOException("Corrupt address book journal: " + ex.getMessage(), ex);
+    }
+  }
+
+  /*
+   * Writes the journal header at the start of an empty journal.
+   */
+  private static void writeHeader(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC);
+    header.putInt(VERSION);
+    header.flip();
+    channel.truncate(0);
+    channel.position(0);
+    while (header.hasRemaining()) {
+      channel.write(header);
+    }
+  }
+
+  private static Path oldJournalPath(Path journalPath) {
+    return journalPath.resolveSibling(journalPath.getFileName() + ".old");
+  }
+}
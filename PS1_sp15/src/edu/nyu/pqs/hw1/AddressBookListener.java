@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.List;
+
+/**
+ * AddressBookListener objects are told about changes to an AddressBook they were added to
+ * with AddressBook.addListener(), e.g. to keep a cache or a search replica up to date.
+ * Events are delivered in batches on a thread of the listener's own, so a slow listener
+ * never holds up the threads changing the book; it only receives larger batches.
+ * @author Vangie Shue
+ * @see AddressBookEvent
+ * @see AddressBook#addListener(AddressBookListener)
+ */
+public interface AddressBookListener {
+
+  /**
+   * Called with the changes made since the previous call, in the order they were made.
+   * Successive field changes to an entry that were still waiting to be delivered are
+   * merged into one event. Calls for one listener never overlap.
+   * @param events the changes, oldest first.
+   */
+  public void entriesChanged(List<AddressBookEvent> events);
+}
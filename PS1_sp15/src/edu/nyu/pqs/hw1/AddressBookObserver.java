@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+/**
+ * AddressBookObserver objects are told about every change to the contents of an AddressBook,
+ * after the change was made. It is used inside the package by components that have to
+ * follow a book, such as the AddressBookJournal.
+ * @author Vangie Shue
+ * @see AddressBook
+ */
+interface AddressBookObserver {
+
+  /**
+   * Called after an entry was added to the AddressBook.
+   * @param e the entry that was added.
+   */
+  void entryAdded(AddressBookEntry e);
+
+  /**
+   * Called after an entry was removed from the AddressBook.
+   * @param e the entry that was removed.
+   */
+  void entryRemoved(AddressBookEntry e);
+
+  /**
+   * Called after a field of an entry in the AddressBook changed its value.
+   * @param e the entry that changed.
+   * @param field the field that changed.
+   */
+  void entryChanged(AddressBookEntry e, EntryField field);
+}
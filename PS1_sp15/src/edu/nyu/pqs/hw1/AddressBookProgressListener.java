@@ -0,0 +1,24 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+/**
+ * AddressBookProgressListener objects are told how far an asynchronous save or load of an
+ * AddressBook has got, e.g. to show a progress bar for a large book.
+ * @author Vangie Shue
+ * @see AddressBook#saveAddressBookToFileAsync(String, AddressBookProgressListener)
+ * @see AddressBook#readAddressBookFromFileAsync(String, AddressBookProgressListener)
+ */
+public interface AddressBookProgressListener {
+
+  /**
+   * Called on the I/O thread every few thousand entries, and once more when all entries
+   * were written or read. A save is only complete once its Future is done, since the file
+   * is moved into place after the last call.
+   * @param done the number of entries written or read so far.
+   * @param total the number of entries in the book.
+   */
+  public void progress(int done, int total);
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Future;
+
+/**
+ * AddressBookSnapshot is an immutable copy of an AddressBook as it was at one version.
+ * A snapshot is taken with AddressBook.snapshot() and can then be searched or saved by any
+ * number of threads while the book itself keeps changing, so a long export or search sees
+ * every contact exactly as it was when the snapshot was taken and never blocks the writer.
+ * <p>
+ * The entries of a snapshot are frozen copies: their setters throw
+ * UnsupportedOperationException. Taking a snapshot only copies the entries that changed
+ * since the previous snapshot of the same book; unchanged entries are shared between
+ * snapshots.
+ * @author Vangie Shue
+ * @see AddressBook#snapshot()
+ */
+public final class AddressBookSnapshot {
+
+  //Frozen copies of the entries, in ID order.
+  private final AddressBookEntry[] entries;
+  private final long version;
+
+  private AddressBookSnapshot(AddressBookEntry[] entries, long version) {
+    this.entries = entries;
+    this.version = version;
+  }
+
+  /**
+   * Returns the version of the AddressBook this snapshot was taken at. The snapshot is
+   * current as long as AddressBook.getVersion() returns the same value.
+   * @return long the version of the book.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the number of entries in the snapshot.
+   * @return int the number of entries.
+   */
+  public int size() {
+    return entries.length;
+  }
+
+  /**
+   * Returns the entry with the given ID as it was when the snapshot was taken.
+   * @param id the unique ID of the entry.
+   * @return AddressBookEntry the frozen entry, or null if the snapshot does not hold it.
+   */
+  public AddressBookEntry getEntry(int id) {
+    int low = 0;
+    int high = entries.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midId = entries[mid].getEntryID();
+      if (midId < id) {
+        low = mid + 1;
+      } else if (midId > id) {
+        high = mid - 1;
+      } else {
+        return entries[mid];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns all entries of the snapshot in ID order.
+   * @return List of the frozen entries, which cannot be modified.
+   */
+  public List<AddressBookEntry> getEntries() {
+    return Collections.unmodifiableList(Arrays.asList(entries));
+  }
+
+  /**
+   * Returns all entries with a field containing the String, as AddressBook.searchEntries().
+   * @param s the String which we will search every Entry field for match.
+   * @return TreeSet<Entry> the set of all entries that matched the string.
+   */
+  public TreeSet<AddressBookEntry> searchEntries(String s) {
+    return searchEntries(new EntryQuery.QueryBuilder().substring(s).build());
+  }
+
+  /**
+   * Returns all entries matching the query. A snapshot keeps no indexes, so every search is
+   * a scan; use parallelSearchEntries() for large snapshots.
+   * @param query the EntryQuery to run.
+   * @return TreeSet<Entry> the set of all entries that matched the query.
+   */
+  public TreeSet<AddressBookEntry> searchEntries(EntryQuery query) {
+    TreeSet<AddressBookEntry> matches = new TreeSet<AddressBookEntry>();
+    for (AddressBookEntry e : entries) {
+      if (query.matches(e)) {
+        matches.add(e);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Searches the snapshot with the query using several threads, as
+   * AddressBook.parallelSearchEntries().
+   * @param query the EntryQuery to run.
+   * @return TreeSet<Entry> the set of all entries that matched the query.
+   */
+  public TreeSet<AddressBookEntry> parallelSearchEntries(EntryQuery query) {
+    return ParallelSearch.search(Arrays.asList(entries), query);
+  }
+
+  /**
+   * Lazily iterates over the entries matching the query, in ID order.
+   * @param query the EntryQuery to run.
+   * @return Iterator<Entry> over the matching entries.
+   */
+  public Iterator<AddressBookEntry> iterateEntries(final EntryQuery query) {
+    return new FilteringIterator(Arrays.asList(entries).iterator()) {
+      @Override
+      boolean accept(AddressBookEntry e) {
+        return query.matches(e);
+      }
+    };
+  }
+
+  /**
+   * Saves the snapshot to the file at path in the format of
+   * AddressBook.saveAddressBookToFile(), so it can be read back with
+   * AddressBook.readAddressBookFromFile().
+   * @param path the file which the entries will be saved at.
+   * @throws IOException if the path is invalid or the file cannot be written to.
+   */
+  public void saveAddressBookToFile(String path) throws IOException {
+    AddressBookFile.write(path, Arrays.asList(entries), entries.length);
+  }
+
+  /**
+   * Saves the snapshot to the file at path in the block-compressed format of
+   * AddressBook.saveCompressedAddressBookToFile().
+   * @param path the file which the entries will be saved at.
+   * @throws IOException if the path is invalid or the file cannot be written to.
+   */
+  public void saveCompressedAddressBookToFile(String path) throws IOException {
+    CompressedAddressBook.write(path, Arrays.asList(entries), entries.length);
+  }
+
+  /**
+   * Saves the snapshot to the file at path on a shared I/O thread, through a temporary
+   * file that replaces path once it is complete.
+   * @param path the file which the entries will be saved at.
+   * @param listener told how many entries were written so far, or null.
+   * @return Future of this snapshot. Its get() throws an ExecutionException caused by the
+   *     IOException if the file cannot be written.
+   * @see AddressBook#saveAddressBookToFileAsync(String, AddressBookProgressListener)
+   */
+  public Future<AddressBookSnapshot> saveAddressBookToFileAsync(String path,
+      AddressBookProgressListener listener) {
+    return AsyncFileIO.save(this, path, listener);
+  }
+
+  /**
+   * Follows the changes to an AddressBook so that the next snapshot only has to copy the
+   * entries that were added or changed since the last one. Until the first snapshot is
+   * taken nothing is recorded.
+   */
+  static class Tracker implements AddressBookObserver {
+    private final AddressBook book;
+    private AddressBookSnapshot last;
+    //IDs of the entries changed since the last snapshot, possibly repeated.
+    private int[] changed = new int[16];
+    private int changedCount = 0;
+    //Set once more entries changed than the book holds; a full copy is then cheaper.
+    private boolean overflow = false;
+
+    Tracker(AddressBook book) {
+      this.book = book;
+    }
+
+    @Override
+    public void entryAdded(AddressBookEntry e) {
+      record(e.getEntryID());
+    }
+
+    @Override
+    public void entryRemoved(AddressBookEntry e) {
+      record(e.getEntryID());
+    }
+
+    @Override
+    public void entryChanged(AddressBookEntry e, EntryField field) {
+      record(e.getEntryID());
+    }
+
+    private void record(int id) {
+      if (last == null || overflow) {
+        return;
+      }
+      if (changedCount == changed.length) {
+        if (changedCount > book.size()) {
+          overflow = true;
+          return;
+        }
+        changed = Arrays.copyOf(changed, changedCount * 2);
+      }
+      changed[changedCount++] = id;
+    }
+
+    /**
+     * Returns a snapshot of the book at its current version, reusing the last snapshot if
+     * the book has not changed since.
+     * @return AddressBookSnapshot of the book.
+     */
+    AddressBookSnapshot snapshot() {
+      long version = book.getVersion();
+      if (last == null || overflow) {
+        last = new AddressBookSnapshot(copyAll(), version);
+      } else if (last.version != version) {
+        last = new AddressBookSnapshot((changedCount == 0) ? last.entries : merge(), version);
+      }
+      changedCount = 0;
+      overflow = false;
+      return last;
+    }
+
+    /*
+     * Copies every entry of the book.
+     */
+    private AddressBookEntry[] copyAll() {
+      AddressBookEntry[] copies = new AddressBookEntry[book.size()];
+      int i = 0;
+      for (AddressBookEntry e : book.getEntries()) {
+        copies[i++] = e.frozenCopy();
+      }
+      return copies;
+    }
+
+    /*
+     * Merges the entries of the last snapshot with fresh copies of the changed entries,
+     * leaving out the ones that were removed. Both lists are in ID order.
+     */
+    private AddressBookEntry[] merge() {
+      int[] ids = Arrays.copyOf(changed, changedCount);
+      Arrays.sort(ids);
+      AddressBookEntry[] old = last.entries;
+      AddressBookEntry[] merged = new AddressBookEntry[book.size()];
+      int n = 0;
+      int i = 0;
+      int j = 0;
+      while (i < old.length || j < ids.length) {
+        if (j < ids.length && (i == old.length || ids[j] <= old[i].getEntryID())) {
+          int id = ids[j];
+          AddressBookEntry live = book.getEntry(id);
+          if (live != null) {
+            merged[n++] = live.frozenCopy();
+          }
+          if (i < old.length && old[i].getEntryID() == id) {
+            i++;
+          }
+          while (j < ids.length && ids[j] == id) {
+            j++;
+          }
+        } else {
+          merged[n++] = old[i++];
+        }
+      }
+      return merged;
+    }
+  }
+}
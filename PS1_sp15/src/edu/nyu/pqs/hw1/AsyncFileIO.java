@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * AsyncFileIO runs the asynchronous saves and loads of AddressBooks on one shared I/O
+ * thread, so that the threads serving requests never wait on the disk. Since there is only
+ * one thread, saves are carried out in the order they were requested and a later save of
+ * the same file always wins.
+ * @author Vangie Shue
+ * @see AddressBook#saveAddressBookToFileAsync(String)
+ * @see AddressBook#readAddressBookFromFileAsync(String)
+ */
+class AsyncFileIO {
+
+  private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+      new DaemonThreadFactory("AddressBook I/O"));
+
+  private AsyncFileIO() {
+  }
+
+  /**
+   * Saves the snapshot to the file at path on the I/O thread, through a temporary file
+   * that is moved over path once it is complete.
+   * @param snapshot the snapshot to save.
+   * @param path the file to replace.
+   * @param listener told how many entries were written so far, or null.
+   * @return Future of the saved snapshot, failing with the IOException if the save fails.
+   */
+  static Future<AddressBookSnapshot> save(final AddressBookSnapshot snapshot, final String path,
+      final AddressBookProgressListener listener) {
+    return EXECUTOR.submit(new Callable<AddressBookSnapshot>() {
+      @Override
+      public AddressBookSnapshot call() throws Exception {
+        AddressBookFile.writeAtomically(path, snapshot.getEntries(), snapshot.size(), listener);
+        return snapshot;
+      }
+    });
+  }
+
+  /**
+   * Reads the AddressBook from the file at path on the I/O thread.
+   * @param path the file to read.
+   * @param listener told how many entries were read so far, or null.
+   * @return Future of the AddressBook, failing with the exception of
+   *     AddressBook.readAddressBookFromFile() if it cannot be read.
+   */
+  static Future<AddressBook> read(final String path,
+      final AddressBookProgressListener listener) {
+    return EXECUTOR.submit(new Callable<AddressBook>() {
+      @Override
+      public AddressBook call() throws Exception {
+        return AddressBookFile.read(path, listener);
+      }
+    });
+  }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * BKTreeIndex finds the entries whose key is within a given edit distance of a query, so
+ * that a mistyped name still finds the contact. The distinct keys form a BK-tree: each
+ * child of a node sits under its edit distance to that node, and by the triangle
+ * inequality a search for keys within k of the query only has to descend into children at
+ * distance d - k to d + k, where d is the query's distance to the node. For small k this
+ * visits a small part of the tree.
+ * <p>
+ * A BK-tree cannot drop a node without rebuilding the subtree below it, so a key that no
+ * entry uses any more stays in the tree with no entries until such keys outnumber the
+ * live ones; the tree is then rebuilt from the live keys. Subclasses name the field in the
+ * constructor and derive the key from its value by implementing key().
+ * @author Vangie Shue
+ * @see AddressBook
+ * @see EditDistance
+ */
+abstract class BKTreeIndex implements EntryIndex {
+
+  //Dead keys are only swept once there are at least this many of them.
+  private static final int MIN_REBUILD_DEAD_KEYS = 1024;
+
+  private final EntryField field;
+  private Node root;
+  private final Map<String, Node> nodes = new HashMap<String, Node>();
+  private int deadKeys = 0;
+
+  /**
+   * A distinct key, the entries indexed under it and its children by distance.
+   */
+  private static class Node {
+    final String key;
+    final TreeSet<AddressBookEntry> entries = new TreeSet<AddressBookEntry>();
+    int[] childDistances = new int[0];
+    Node[] children = new Node[0];
+    int maxChildDistance = 0;
+
+    Node(String key) {
+      this.key = key;
+    }
+
+    Node child(int distance) {
+      for (int i = 0; i < childDistances.length; i++) {
+        if (childDistances[i] == distance) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    void addChild(int distance, Node child) {
+      int n = children.length;
+      childDistances = Arrays.copyOf(childDistances, n + 1);
+      children = Arrays.copyOf(children, n + 1);
+      childDistances[n] = distance;
+      children[n] = child;
+      maxChildDistance = Math.max(maxChildDistance, distance);
+    }
+  }
+
+  BKTreeIndex(EntryField field) {
+    this.field = field;
+  }
+
+  /**
+   * Derives the key under which an entry with the given field value is indexed.
+   * @param value the value of the indexed field.
+   * @return String the key, or null if the entry should not be indexed.
+   */
+  abstract String key(String value);
+
+  @Override
+  public void add(AddressBookEntry e) {
+    addKey(key(field.getValue(e)), e);
+  }
+
+  @Override
+  public void remove(AddressBookEntry e) {
+    removeKey(key(field.getValue(e)), e);
+  }
+
+  @Override
+  public void update(AddressBookEntry e, EntryField changed, String oldValue) {
+    if (changed != field) {
+      return;
+    }
+    String oldKey = key(oldValue);
+    String newKey = key(field.getValue(e));
+    if (oldKey == null ? newKey != null : !oldKey.equals(newKey)) {
+      removeKey(oldKey, e);
+      addKey(newKey, e);
+    }
+  }
+
+  private void addKey(String key, AddressBookEntry e) {
+    if (key == null) {
+      return;
+    }
+    Node node = nodes.get(key);
+    if (node == null) {
+      node = new Node(key);
+      nodes.put(key, node);
+      insert(node);
+    } else if (node.entries.isEmpty()) {
+      deadKeys--;
+    }
+    node.entries.add(e);
+  }
+
+  private void removeKey(String key, AddressBookEntry e) {
+    if (key == null) {
+      return;
+    }
+    Node node = nodes.get(key);
+    if (node != null && node.entries.remove(e) && node.entries.isEmpty()) {
+      deadKeys++;
+      if (deadKeys >= MIN_REBUILD_DEAD_KEYS && deadKeys > nodes.size() - deadKeys) {
+        rebuild();
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    root = null;
+    nodes.clear();
+    deadKeys = 0;
+  }
+
+  /**
+   * Returns the entries whose key is within maxDistance edits of the query, closest first
+   * and by ID among entries at the same distance.
+   * @param query the key to look for, already in the form key() produces.
+   * @param maxDistance the largest number of edits allowed.
+   * @return List of the matching entries.
+   */
+  List<AddressBookEntry> search(String query, int maxDistance) {
+    List<TreeSet<AddressBookEntry>> byDistance = new ArrayList<TreeSet<AddressBookEntry>>();
+    for (int d = 0; d <= maxDistance; d++) {
+      byDistance.add(new TreeSet<AddressBookEntry>());
+    }
+    if (root != null) {
+      List<Node> pending = new ArrayList<Node>();
+      pending.add(root);
+      while (!pending.isEmpty()) {
+        Node node = pending.remove(pending.size() - 1);
+        //Beyond this distance neither the node nor any of its children can match.
+        int bound = maxDistance + node.maxChildDistance;
+        int d = EditDistance.distance(query, node.key, bound);
+        if (d > bound) {
+          continue;
+        }
+        if (d <= maxDistance) {
+          byDistance.get(d).addAll(node.entries);
+        }
+        for (int i = 0; i < node.children.length; i++) {
+          if (Math.abs(node.childDistances[i] - d) <= maxDistance) {
+            pending.add(node.children[i]);
+          }
+        }
+      }
+    }
+    List<AddressBookEntry> matches = new ArrayList<AddressBookEntry>();
+    for (TreeSet<AddressBookEntry> group : byDistance) {
+      matches.addAll(group);
+    }
+    return matches;
+  }
+
+  private static int distance(String a, String b) {
+    return EditDistance.distance(a, b, Math.max(a.length(), b.length()));
+  }
+
+  private void insert(Node node) {
+    if (root == null) {
+      root = node;
+      return;
+    }
+    Node parent = root;
+    while (true) {
+      int d = distance(node.key, parent.key);
+      Node child = parent.child(d);
+      if (child == null) {
+        parent.addChild(d, node);
+        return;
+      }
+      parent = child;
+    }
+  }
+
+  /*
+   * Rebuilds the tree from the keys that still have entries.
+   */
+  private void rebuild() {
+    List<Node> live = new ArrayList<Node>();
+    for (Node node : nodes.values()) {
+      if (!node.entries.isEmpty()) {
+        live.add(node);
+      }
+    }
+    root = null;
+    deadKeys = 0;
+    nodes.clear();
+    for (Node node : live) {
+      node.childDistances = new int[0];
+      node.children = new Node[0];
+      node.maxChildDistance = 0;
+      nodes.put(node.key, node);
+      insert(node);
+    }
+  }
+
+  /**
+   * Indexes entries by their name, ignoring case. Entries without a name are not indexed.
+   */
+  static class NameIndex extends BKTreeIndex {
+    NameIndex() {
+      super(EntryField.NAME);
+    }
+    @Override
+    String key(String name) {
+      return name.isEmpty() ? null : name.toLowerCase();
+    }
+  }
+
+  /**
+   * Indexes entries by their email address, ignoring case. Entries without an email
+   * address are not indexed.
+   */
+  static class EmailIndex extends BKTreeIndex {
+    EmailIndex() {
+      super(EntryField.EMAIL_ADDRESS);
+    }
+    @Override
+    String key(String email) {
+      return email.isEmpty() ? null : email.toLowerCase();
+    }
+  }
+}
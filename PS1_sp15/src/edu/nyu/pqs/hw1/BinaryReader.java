@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * BinaryReader reads the values written by a BinaryWriter, filling its buffer from the
+ * channel in large blocks.
+ * @author Vangie Shue
+ * @see BinaryWriter
+ */
+class BinaryReader {
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer buffer;
+
+  BinaryReader(ReadableByteChannel channel) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(BinaryWriter.BUFFER_SIZE);
+    buffer.flip();
+  }
+
+  int readByte() throws IOException {
+    require(1);
+    return buffer.get() & 0xFF;
+  }
+
+  int readInt() throws IOException {
+    require(4);
+    return buffer.getInt();
+  }
+
+  long readLong() throws IOException {
+    require(8);
+    return buffer.getLong();
+  }
+
+  String readString() throws IOException {
+    return new String(readBytes(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a byte length followed by that many bytes.
+   * @return byte[] the bytes read.
+   * @throws IOException if the channel ends early or the length is negative.
+   */
+  byte[] readBytes() throws IOException {
+    return readBytes(readInt());
+  }
+
+  /**
+   * Reads the given number of bytes. The length usually comes from the file, so it is
+   * checked against the bytes left in a file channel, and the array only grows as bytes
+   * actually arrive; a corrupt length never allocates more than the channel holds.
+   * @param length the number of bytes to read.
+   * @return byte[] the bytes read.
+   * @throws IOException if the channel ends early or the length is negative.
+   */
+  byte[] readBytes(int length) throws IOException {
+    if (length < 0) {
+      throw new IOException("Corrupt address book file: negative length.");
+    }
+    if (channel instanceof SeekableByteChannel) {
+      SeekableByteChannel file = (SeekableByteChannel) channel;
+      long left = buffer.remaining() + file.size() - file.position();
+      if (length > left) {
+        throw new IOException("Corrupt address book file: length " + length
+            + " is larger than the " + left + " bytes left.");
+      }
+    }
+    byte[] bytes = new byte[Math.min(length, BinaryWriter.BUFFER_SIZE)];
+    int copied = 0;
+    while (copied < length) {
+      if (!buffer.hasRemaining() && !fill()) {
+        throw new EOFException();
+      }
+      if (copied == bytes.length) {
+        bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+      }
+      int n = Math.min(buffer.remaining(), bytes.length - copied);
+      buffer.get(bytes, copied, n);
+      copied += n;
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns true if there is nothing left to read.
+   * @return boolean whether the end of the channel was reached.
+   * @throws IOException if the channel cannot be read.
+   */
+  boolean atEnd() throws IOException {
+    return !buffer.hasRemaining() && !fill();
+  }
+
+  /*
+   * Makes sure n bytes are available in the buffer.
+   */
+  private void require(int n) throws IOException {
+    while (buffer.remaining() < n) {
+      if (!fill()) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  /*
+   * Reads more bytes from the channel into the buffer. Returns false at end of channel.
+   */
+  private boolean fill() throws IOException {
+    buffer.compact();
+    int n;
+    try {
+      n = channel.read(buffer);
+    } finally {
+      buffer.flip();
+    }
+    return n > 0;
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * BinaryWriter buffers primitive values and length-prefixed UTF-8 Strings and writes them
+ * to a channel in large blocks. It is the write side of the AddressBook file formats.
+ * @author Vangie Shue
+ * @see BinaryReader
+ */
+class BinaryWriter {
+
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer;
+  private long position = 0;
+
+  BinaryWriter(WritableByteChannel channel) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  }
+
+  void writeByte(int b) throws IOException {
+    ensure(1);
+    buffer.put((byte) b);
+  }
+
+  void writeInt(int i) throws IOException {
+    ensure(4);
+    buffer.putInt(i);
+  }
+
+  void writeLong(long l) throws IOException {
+    ensure(8);
+    buffer.putLong(l);
+  }
+
+  /**
+   * Writes the String as its UTF-8 byte length followed by the bytes.
+   * @param s the String to write.
+   * @throws IOException if the channel cannot be written to.
+   */
+  void writeString(String s) throws IOException {
+    writeBytes(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Writes the byte length followed by the bytes. Arrays larger than the buffer bypass it.
+   * @param bytes the bytes to write.
+   * @throws IOException if the channel cannot be written to.
+   */
+  void writeBytes(byte[] bytes) throws IOException {
+    writeInt(bytes.length);
+    if (bytes.length <= buffer.capacity()) {
+      ensure(bytes.length);
+      buffer.put(bytes);
+    } else {
+      flush();
+      drain(ByteBuffer.wrap(bytes));
+    }
+  }
+
+  /**
+   * Writes the first length bytes of the array as they are, without a length prefix.
+   * @param bytes the bytes to write.
+   * @param length the number of bytes to write.
+   * @throws IOException if the channel cannot be written to.
+   */
+  void writeRaw(byte[] bytes, int length) throws IOException {
+    if (length <= buffer.capacity()) {
+      ensure(length);
+      buffer.put(bytes, 0, length);
+    } else {
+      flush();
+      drain(ByteBuffer.wrap(bytes, 0, length));
+    }
+  }
+
+  /**
+   * Returns the number of bytes written so far, including those still in the buffer.
+   * @return long the offset of the next byte from the start of the channel.
+   */
+  long position() {
+    return position + buffer.position();
+  }
+
+  /**
+   * Writes everything buffered so far to the channel.
+   * @throws IOException if the channel cannot be written to.
+   */
+  void flush() throws IOException {
+    buffer.flip();
+    drain(buffer);
+    buffer.clear();
+  }
+
+  /*
+   * Makes room for n more bytes in the buffer.
+   */
+  private void ensure(int n) throws IOException {
+    if (buffer.remaining() < n) {
+      flush();
+    }
+  }
+
+  /*
+   * Writes all remaining bytes of b to the channel.
+   */
+  private void drain(ByteBuffer b) throws IOException {
+    while (b.hasRemaining()) {
+      position += channel.write(b);
+    }
+  }
+}
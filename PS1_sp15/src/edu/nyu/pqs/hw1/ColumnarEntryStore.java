@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * ColumnarEntryStore keeps contacts in per-field arrays instead of one object graph per
+ * contact. The name, postal address, email address and note columns are int[] codes into a
+ * shared StringDictionary, so repeated values are stored once; the phone column packs each
+ * number into two longs at four bits per character. A contact costs about 36 bytes of
+ * column space plus a slot in the ID map, against roughly seven objects for an
+ * AddressBookEntry.
+ * <p>
+ * Rows are kept densely packed: removing an entry moves the last row into its place, and an
+ * IntIntMap finds the row of an ID. Views returned by get() and the iterator only hold the
+ * entry's ID and read the columns each time a getter is called.
+ * <p>
+ * A store is a standalone backend: AddressBook keeps its own entries and does not run on
+ * a store. To hold a large book in the compact form, load its file straight into a store
+ * with readAddressBookFromFile(), which never builds the AddressBookEntry objects, and
+ * search and save it through the store.
+ * @author Vangie Shue
+ * @see EntryStore
+ * @see StringDictionary
+ */
+public class ColumnarEntryStore extends AbstractEntryStore {
+
+  //Characters of a packed phone number; a character is stored as its index + 1, 0 ends it.
+  private static final String PHONE_SYMBOLS = "0123456789;,+*#";
+  //Number of characters that fit in the two longs of the phone column.
+  private static final int PACKED_PHONE_LENGTH = 32;
+
+  private int size = 0;
+  private int[] ids = new int[16];
+  private int[] names = new int[16];
+  private int[] postalAddresses = new int[16];
+  private int[] emailAddresses = new int[16];
+  private int[] notes = new int[16];
+  private long[] phoneHigh = new long[16];
+  private long[] phoneLow = new long[16];
+  private final IntIntMap rows = new IntIntMap();
+  private final StringDictionary dictionary = new StringDictionary();
+  //Phone numbers that cannot be packed (too long, or non-ASCII digits), by entry ID.
+  private final Map<Integer, String> unpackedPhones = new HashMap<Integer, String>();
+
+  /**
+   * Reads the AddressBook file at path straight into a new store, one entry at a time.
+   * @param path the file to read, saved by AddressBook.saveAddressBookToFile() or
+   *     AddressBook.saveCompressedAddressBookToFile().
+   * @return ColumnarEntryStore with the entries of the file.
+   * @throws IOException if the file cannot be read, is corrupt, or is a Java serialized
+   *     AddressBook.
+   */
+  public static ColumnarEntryStore readAddressBookFromFile(String path) throws IOException {
+    ColumnarEntryStore store = new ColumnarEntryStore();
+    AddressBookFile.readEntries(path, store);
+    return store;
+  }
+
+  /**
+   * Creates a store holding copies of all entries of the AddressBook.
+   * @param book the AddressBook to copy.
+   * @return ColumnarEntryStore with the entries of the book.
+   */
+  public static ColumnarEntryStore fromAddressBook(AddressBook book) {
+    ColumnarEntryStore store = new ColumnarEntryStore();
+    for (AddressBookEntry e : book.getEntries()) {
+      store.add(e);
+    }
+    return store;
+  }
+
+  @Override
+  public void add(EntryView e) {
+    int id = e.getEntryID();
+    int row = rows.get(id);
+    if (row == IntIntMap.MISSING) {
+      row = size++;
+      if (row == ids.length) {
+        grow();
+      }
+      ids[row] = id;
+      rows.put(id, row);
+    } else {
+      releaseRow(row);
+    }
+    names[row] = dictionary.acquire(e.getName());
+    postalAddresses[row] = dictionary.acquire(e.getPostalAddress());
+    emailAddresses[row] = dictionary.acquire(e.getEmailAddress());
+    notes[row] = dictionary.acquire(e.getNote());
+    packPhone(row, id, e.getPhoneNumber());
+  }
+
+  @Override
+  public boolean remove(int id) {
+    int row = rows.remove(id);
+    if (row == IntIntMap.MISSING) {
+      return false;
+    }
+    releaseRow(row);
+    unpackedPhones.remove(id);
+    int last = --size;
+    if (row != last) {
+      ids[row] = ids[last];
+      names[row] = names[last];
+      postalAddresses[row] = postalAddresses[last];
+      emailAddresses[row] = emailAddresses[last];
+      notes[row] = notes[last];
+      phoneHigh[row] = phoneHigh[last];
+      phoneLow[row] = phoneLow[last];
+      rows.put(ids[row], row);
+    }
+    return true;
+  }
+
+  @Override
+  public EntryView get(int id) {
+    return (rows.get(id) == IntIntMap.MISSING) ? null : new ColumnView(id);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of distinct String values stored for the name, postal address,
+   * email address and note columns together.
+   * @return int the number of distinct values.
+   */
+  public int distinctValueCount() {
+    return dictionary.size();
+  }
+
+  /**
+   * Iterates over views of the stored entries in storage order, which is not ID order.
+   * The store must not be changed while the iterator is in use.
+   * @return Iterator over views of the entries.
+   */
+  @Override
+  public Iterator<EntryView> iterator() {
+    return new Iterator<EntryView>() {
+      private int row = 0;
+
+      @Override
+      public boolean hasNext() {
+        return row < size;
+      }
+
+      @Override
+      public EntryView next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return new ColumnView(ids[row++]);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("Remove entries through the store.");
+      }
+    };
+  }
+
+  /*
+   * Releases the dictionary codes used by a row.
+   */
+  private void releaseRow(int row) {
+    dictionary.release(names[row]);
+    dictionary.release(postalAddresses[row]);
+    dictionary.release(emailAddresses[row]);
+    dictionary.release(notes[row]);
+  }
+
+  private void grow() {
+    int capacity = ids.length * 2;
+    ids = Arrays.copyOf(ids, capacity);
+    names = Arrays.copyOf(names, capacity);
+    postalAddresses = Arrays.copyOf(postalAddresses, capacity);
+    emailAddresses = Arrays.copyOf(emailAddresses, capacity);
+    notes = Arrays.copyOf(notes, capacity);
+    phoneHigh = Arrays.copyOf(phoneHigh, capacity);
+    phoneLow = Arrays.copyOf(phoneLow, capacity);
+  }
+
+  /*
+   * Stores the phone number of a row four bits per character, the first 16 characters in
+   * phoneHigh and the next 16 in phoneLow. Numbers that do not fit go to unpackedPhones.
+   */
+  private void packPhone(int row, int id, String phone) {
+    long high = 0;
+    long low = 0;
+    boolean packed = phone.length() <= PACKED_PHONE_LENGTH;
+    for (int i = 0; packed && i < phone.length(); i++) {
+      int symbol = PHONE_SYMBOLS.indexOf(phone.charAt(i)) + 1;
+      if (symbol == 0) {
+        packed = false;
+      } else if (i < 16) {
+        high |= (long) symbol << (60 - 4 * i);
+      } else {
+        low |= (long) symbol << (60 - 4 * (i - 16));
+      }
+    }
+    if (packed) {
+      phoneHigh[row] = high;
+      phoneLow[row] = low;
+      unpackedPhones.remove(id);
+    } else {
+      phoneHigh[row] = 0;
+      phoneLow[row] = 0;
+      unpackedPhones.put(id, phone);
+    }
+  }
+
+  /*
+   * Decodes the phone number of a row.
+   */
+  private String unpackPhone(int row) {
+    long high = phoneHigh[row];
+    long low = phoneLow[row];
+    if (high == 0) {
+      String unpacked = unpackedPhones.isEmpty() ? null : unpackedPhones.get(ids[row]);
+      return (unpacked == null) ? "" : unpacked;
+    }
+    char[] phone = new char[PACKED_PHONE_LENGTH];
+    int length = 0;
+    for (int i = 0; i < PACKED_PHONE_LENGTH; i++) {
+      long word = (i < 16) ? high : low;
+      int symbol = (int) (word >>> (60 - 4 * (i % 16))) & 0xF;
+      if (symbol == 0) {
+        break;
+      }
+      phone[length++] = PHONE_SYMBOLS.charAt(symbol - 1);
+    }
+    return new String(phone, 0, length);
+  }
+
+  /*
+   * Returns the row of an ID, failing if the entry was removed after its view was made.
+   */
+  private int rowOf(int id) {
+    int row = rows.get(id);
+    if (row == IntIntMap.MISSING) {
+      throw new IllegalStateException("Entry " + id + " is no longer in the store.");
+    }
+    return row;
+  }
+
+  /**
+   * A flyweight view of one stored entry.
+   */
+  private class ColumnView implements EntryView {
+    private final int id;
+
+    ColumnView(int id) {
+      this.id = id;
+    }
+    @Override
+    public int getEntryID() {
+      return id;
+    }
+    @Override
+    public String getName() {
+      return dictionary.get(names[rowOf(id)]);
+    }
+    @Override
+    public String getPostalAddress() {
+      return dictionary.get(postalAddresses[rowOf(id)]);
+    }
+    @Override
+    public String getPhoneNumber() {
+      return unpackPhone(rowOf(id));
+    }
+    @Override
+    public String getEmailAddress() {
+      return dictionary.get(emailAddresses[rowOf(id)]);
+    }
+    @Override
+    public String getNote() {
+      return dictionary.get(notes[rowOf(id)]);
+    }
+  }
+}
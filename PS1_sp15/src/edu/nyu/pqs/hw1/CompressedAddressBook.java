@@ -0,0 +1,511 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * CompressedAddressBook is a read-only view of a block-compressed AddressBook file written
+ * by AddressBook.saveCompressedAddressBookToFile(). The format is:
+ * <pre>
+ *   int    COMPRESSED_MAGIC
+ *   int    format version
+ *   int    number of entries
+ *   blocks, each the Deflate-compressed entries of AddressBookFile (ID and five
+ *     length-prefixed UTF-8 fields) for a run of consecutive entries in ID order
+ *   block index, one row per block:
+ *     int  ID of the first entry of the block
+ *     int  number of entries in the block
+ *     long file offset of the block
+ *     int  compressed length
+ *     int  uncompressed length
+ *   int    number of blocks
+ *   long   file offset of the block index
+ * </pre>
+ * All ints and longs are big-endian. A block is closed once it holds BLOCK_SIZE bytes of
+ * uncompressed entries, so addresses and email domains repeated within a block compress
+ * well, while finding one entry or a range of IDs only inflates the blocks that hold them.
+ * <p>
+ * Only the block index is read when the file is opened. The AddressBookEntry objects
+ * returned are fresh copies: changing them does not change the file. A
+ * CompressedAddressBook can be read by several threads at once, and must be closed when it
+ * is no longer needed. AddressBook.readAddressBookFromFile() also reads these files in full.
+ * @author Vangie Shue
+ * @see AddressBook#saveCompressedAddressBookToFile(String)
+ * @see AddressBookFile
+ */
+public class CompressedAddressBook implements Iterable<AddressBookEntry>, Closeable {
+
+  //"PQAZ"
+  static final int COMPRESSED_MAGIC = 0x5051415A;
+  static final int COMPRESSED_VERSION = 1;
+  //Uncompressed bytes of entries after which a block is closed.
+  static final int BLOCK_SIZE = 64 * 1024;
+  //Size of one row of the block index.
+  private static final int INDEX_ROW_SIZE = 24;
+  //The header, and the block count and index offset at the end of the file.
+  private static final int HEADER_SIZE = 12;
+  private static final int TRAILER_SIZE = 12;
+  //Bytes of an entry with five empty fields: the ID and five lengths.
+  private static final int MIN_ENTRY_SIZE = 4 + 4 * 5;
+  //Deflate cannot expand data by more than about 1032 to 1.
+  private static final int MAX_INFLATION = 1032;
+
+  private final FileChannel channel;
+  private final int count;
+  private final int[] firstIds;
+  private final int[] blockCounts;
+  private final long[] offsets;
+  private final int[] compressedLengths;
+  private final int[] lengths;
+
+  private CompressedAddressBook(FileChannel channel, int count, int blocks) {
+    this.channel = channel;
+    this.count = count;
+    this.firstIds = new int[blocks];
+    this.blockCounts = new int[blocks];
+    this.offsets = new long[blocks];
+    this.compressedLengths = new int[blocks];
+    this.lengths = new int[blocks];
+  }
+
+  /**
+   * Opens the block-compressed AddressBook file at path, reading its header and block index.
+   * @param path the file to open.
+   * @return CompressedAddressBook over the file.
+   * @throws IOException if the file cannot be read or is not a block-compressed
+   *     AddressBook file.
+   */
+  public static CompressedAddressBook open(String path) throws IOException {
+    FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    boolean opened = false;
+    try {
+      CompressedAddressBook book = readIndex(channel, path);
+      opened = true;
+      return book;
+    } finally {
+      if (!opened) {
+        channel.close();
+      }
+    }
+  }
+
+  /*
+   * Checks the header and reads the block index at the end of the file.
+   */
+  private static CompressedAddressBook readIndex(FileChannel channel, String path)
+      throws IOException {
+    long size = channel.size();
+    if (size < HEADER_SIZE + TRAILER_SIZE) {
+      throw new IOException("Not a compressed address book file: " + path);
+    }
+    ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+    if (header.getInt() != COMPRESSED_MAGIC) {
+      throw new IOException("Not a compressed address book file: " + path);
+    }
+    int version = header.getInt();
+    if (version != COMPRESSED_VERSION) {
+      throw new IOException("Unsupported compressed address book file version: " + version);
+    }
+    int count = header.getInt();
+    ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+    int blocks = trailer.getInt();
+    long indexOffset = trailer.getLong();
+    if (blocks < 0 || count < 0 || indexOffset < HEADER_SIZE
+        || indexOffset + (long) blocks * INDEX_ROW_SIZE != size - TRAILER_SIZE) {
+      throw new IOException("Corrupt compressed address book file: bad block index.");
+    }
+    CompressedAddressBook book = new CompressedAddressBook(channel, count, blocks);
+    ByteBuffer index = readFully(channel, indexOffset, blocks * INDEX_ROW_SIZE);
+    long total = 0;
+    long end = HEADER_SIZE;
+    for (int i = 0; i < blocks; i++) {
+      int firstId = index.getInt();
+      int blockCount = index.getInt();
+      long offset = index.getLong();
+      int compressedLength = index.getInt();
+      int length = index.getInt();
+      //Blocks are written in ID order, one after the other, before the index.
+      if ((i > 0 && firstId <= book.firstIds[i - 1]) || blockCount <= 0
+          || offset < end || compressedLength < 0 || offset + compressedLength > indexOffset
+          || length < (long) blockCount * MIN_ENTRY_SIZE
+          || length > (long) compressedLength * MAX_INFLATION) {
+        throw new IOException("Corrupt compressed address book file: bad block index row "
+            + i + ".");
+      }
+      book.firstIds[i] = firstId;
+      book.blockCounts[i] = blockCount;
+      book.offsets[i] = offset;
+      book.compressedLengths[i] = compressedLength;
+      book.lengths[i] = length;
+      end = offset + compressedLength;
+      total += blockCount;
+    }
+    if (total != count) {
+      throw new IOException("Corrupt compressed address book file: bad block index.");
+    }
+    return book;
+  }
+
+  /**
+   * Returns the number of entries in the file.
+   * @return int the number of entries.
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Returns the number of compressed blocks in the file.
+   * @return int the number of blocks.
+   */
+  public int getBlockCount() {
+    return firstIds.length;
+  }
+
+  /**
+   * Finds the entry with the given ID, inflating only the block that may hold it.
+   * @param id the unique ID of the entry.
+   * @return AddressBookEntry a copy of the entry, or null if there is no entry with that ID.
+   * @throws IOException if the block cannot be read or is corrupt.
+   */
+  public AddressBookEntry getEntry(int id) throws IOException {
+    int block = blockOf(id);
+    if (block < 0) {
+      return null;
+    }
+    byte[] bytes = inflateBlock(block);
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    //Skip over the entries before it without decoding them.
+    for (int i = 0; i < blockCounts[block]; i++) {
+      int start = in.position();
+      int entryId = in.getInt();
+      if (entryId == id) {
+        return AddressBookFile.readEntry(new BinaryReader(Channels.newChannel(
+            new ByteArrayInputStream(bytes, start, bytes.length - start))));
+      } else if (entryId > id) {
+        return null;
+      }
+      for (int field = 0; field < EntryField.values().length; field++) {
+        int length = in.getInt();
+        in.position(in.position() + length);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the entries with IDs from fromId (inclusive) to toId (exclusive), inflating
+   * only the blocks that hold them.
+   * @param fromId the lowest ID to return.
+   * @param toId the ID above the highest ID to return.
+   * @return List of copies of the entries, in ID order.
+   * @throws IOException if a block cannot be read or is corrupt.
+   */
+  public List<AddressBookEntry> getEntries(int fromId, int toId) throws IOException {
+    List<AddressBookEntry> range = new ArrayList<AddressBookEntry>();
+    int block = Math.max(0, blockOf(fromId));
+    for (; block < firstIds.length && firstIds[block] < toId; block++) {
+      for (AddressBookEntry e : readBlock(block)) {
+        if (e.getEntryID() >= fromId && e.getEntryID() < toId) {
+          range.add(e);
+        }
+      }
+    }
+    return range;
+  }
+
+  /**
+   * Lazily decodes the entries in ID order, inflating one block at a time.
+   * @return Iterator over copies of the entries.
+   * @throws IllegalStateException from next() if a block cannot be read or is corrupt.
+   */
+  @Override
+  public Iterator<AddressBookEntry> iterator() {
+    return new Iterator<AddressBookEntry>() {
+      private int block = 0;
+      private List<AddressBookEntry> current = new ArrayList<AddressBookEntry>();
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < current.size() || block < firstIds.length;
+      }
+
+      @Override
+      public AddressBookEntry next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        if (index == current.size()) {
+          try {
+            current = readBlock(block++);
+          } catch (IOException ex) {
+            throw new IllegalStateException("Cannot read compressed address book block.", ex);
+          }
+          index = 0;
+        }
+        return current.get(index++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("CompressedAddressBook is read-only.");
+      }
+    };
+  }
+
+  /**
+   * Decodes every entry and checks it against the query. This inflates the whole file;
+   * load it with AddressBook.readAddressBookFromFile() for repeated searches.
+   * @param query the EntryQuery to run.
+   * @return TreeSet<Entry> copies of all entries that matched the query.
+   */
+  public TreeSet<AddressBookEntry> searchEntries(EntryQuery query) {
+    TreeSet<AddressBookEntry> matches = new TreeSet<AddressBookEntry>();
+    for (AddressBookEntry e : this) {
+      if (query.matches(e)) {
+        matches.add(e);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Closes the file.
+   * @throws IOException if the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /*
+   * Returns the last block whose first ID is not above id, or -1 if id is below them all.
+   */
+  private int blockOf(int id) {
+    int i = Arrays.binarySearch(firstIds, id);
+    return (i >= 0) ? i : -i - 2;
+  }
+
+  /*
+   * Reads, inflates and decodes every entry of the block.
+   */
+  private List<AddressBookEntry> readBlock(int block) throws IOException {
+    byte[] bytes = inflateBlock(block);
+    BinaryReader in = new BinaryReader(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    List<AddressBookEntry> entries = new ArrayList<AddressBookEntry>(blockCounts[block]);
+    for (int i = 0; i < blockCounts[block]; i++) {
+      entries.add(AddressBookFile.readEntry(in));
+    }
+    return entries;
+  }
+
+  /*
+   * Reads and inflates the block, returning the encoded entries.
+   */
+  private byte[] inflateBlock(int block) throws IOException {
+    byte[] compressed = readFully(channel, offsets[block], compressedLengths[block]).array();
+    byte[] bytes = new byte[lengths[block]];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      int n = 0;
+      while (n < bytes.length && !inflater.finished()) {
+        int inflated = inflater.inflate(bytes, n, bytes.length - n);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n += inflated;
+      }
+      if (n != bytes.length) {
+        throw new IOException("Corrupt compressed address book file: short block.");
+      }
+    } catch (DataFormatException ex) {
+      throw new IOException("Corrupt compressed address book file: " + ex.getMessage());
+    } finally {
+      inflater.end();
+    }
+    return bytes;
+  }
+
+  /*
+   * Reads length bytes at position with positional reads, which do not disturb other
+   * threads reading the same channel.
+   */
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Corrupt compressed address book file: unexpected end.");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Reads every entry of the block-compressed file into a new AddressBook.
+   * @param channel the open file, positioned anywhere.
+   * @param path the name of the file, for error messages.
+   * @param listener told how many entries were read so far, or null.
+   * @return AddressBook holding the entries of the file.
+   * @throws IOException if the file cannot be read or is corrupt.
+   */
+  static AddressBook read(FileChannel channel, String path,
+      AddressBookProgressListener listener) throws IOException {
+    CompressedAddressBook file = readIndex(channel, path);
+    AddressBook book = new AddressBook();
+    for (int block = 0; block < file.firstIds.length; block++) {
+      for (AddressBookEntry e : file.readBlock(block)) {
+        book.addEntry(e);
+      }
+      if (listener != null && book.size() < file.count) {
+        listener.progress(book.size(), file.count);
+      }
+    }
+    return book;
+  }
+
+  /**
+   * Adds every entry of the block-compressed file to the store, one block at a time. As
+   * AddressBookFile.readEntries() does, the entries are decoded into one reused view, so no
+   * AddressBookEntry is built.
+   * @param channel the open file, positioned anywhere.
+   * @param path the name of the file, for error messages.
+   * @param store the store to add the entries to.
+   * @throws IOException if the file cannot be read or is corrupt.
+   */
+  static void readEntries(FileChannel channel, String path, EntryStore store)
+      throws IOException {
+    CompressedAddressBook file = readIndex(channel, path);
+    AddressBookFile.RecordView record = new AddressBookFile.RecordView();
+    for (int block = 0; block < file.firstIds.length; block++) {
+      BinaryReader in = new BinaryReader(Channels.newChannel(
+          new ByteArrayInputStream(file.inflateBlock(block))));
+      for (int i = 0; i < file.blockCounts[block]; i++) {
+        record.read(in);
+        store.add(record);
+      }
+    }
+  }
+
+  /**
+   * Writes the entries to the file at path in the block-compressed format, replacing the
+   * file.
+   * @param path the file to write.
+   * @param entries the entries to write, in ID order.
+   * @param count the number of entries.
+   * @throws IOException if the file cannot be written.
+   */
+  static void write(String path, Iterable<AddressBookEntry> entries, int count)
+      throws IOException {
+    FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    Deflater deflater = new Deflater();
+    try {
+      BinaryWriter out = new BinaryWriter(channel);
+      out.writeInt(COMPRESSED_MAGIC);
+      out.writeInt(COMPRESSED_VERSION);
+      out.writeInt(count);
+      BlockWriter block = new BlockWriter(out, deflater);
+      for (AddressBookEntry e : entries) {
+        block.add(e);
+      }
+      block.finish();
+      long indexOffset = out.position();
+      for (long[] row : block.index) {
+        out.writeInt((int) row[0]);
+        out.writeInt((int) row[1]);
+        out.writeLong(row[2]);
+        out.writeInt((int) row[3]);
+        out.writeInt((int) row[4]);
+      }
+      out.writeInt(block.index.size());
+      out.writeLong(indexOffset);
+      out.flush();
+    } finally {
+      deflater.end();
+      channel.close();
+    }
+  }
+
+  /**
+   * Collects encoded entries until a block is full, then compresses the block into the
+   * file and records its row of the block index.
+   */
+  private static class BlockWriter {
+    private final BinaryWriter out;
+    private final Deflater deflater;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+    private final BinaryWriter encoder = new BinaryWriter(Channels.newChannel(bytes));
+    private byte[] compressed = new byte[BLOCK_SIZE];
+    //Rows of the block index: first ID, entry count, offset, compressed and plain length.
+    final List<long[]> index = new ArrayList<long[]>();
+    private int firstId;
+    private int entries = 0;
+    private long blockStart = 0;
+
+    BlockWriter(BinaryWriter out, Deflater deflater) {
+      this.out = out;
+      this.deflater = deflater;
+    }
+
+    void add(AddressBookEntry e) throws IOException {
+      if (entries == 0) {
+        firstId = e.getEntryID();
+      }
+      AddressBookFile.writeEntry(encoder, e);
+      entries++;
+      if (encoder.position() - blockStart >= BLOCK_SIZE) {
+        finish();
+      }
+    }
+
+    /*
+     * Compresses and writes the entries collected so far, if there are any.
+     */
+    void finish() throws IOException {
+      if (entries == 0) {
+        return;
+      }
+      encoder.flush();
+      blockStart = encoder.position();
+      byte[] plain = bytes.toByteArray();
+      bytes.reset();
+      deflater.reset();
+      deflater.setInput(plain);
+      deflater.finish();
+      int n = 0;
+      while (!deflater.finished()) {
+        if (n == compressed.length) {
+          compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+        n += deflater.deflate(compressed, n, compressed.length - n);
+      }
+      index.add(new long[] {firstId, entries, out.position(), n, plain.length});
+      out.writeRaw(compressed, n);
+      entries = 0;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * ConcurrentAddressBook is a thread-safe AddressBook for books shared between threads.
+ * Entries are kept in a ConcurrentSkipListSet ordered by ID, so addEntry() and removeEntry()
+ * never block each other and searches never take a lock: every thread scans the set
+ * independently and search throughput grows with the number of cores.
+ * <p>
+ * Searches see entries added or removed while they run on a best effort basis (they are
+ * weakly consistent), and changes made through the setters of an entry are seen by all
+ * threads as soon as the setter returns. Unlike AddressBook, a ConcurrentAddressBook keeps
+ * no secondary indexes, so every search is a scan.
+ * @author Vangie Shue
+ * @see AddressBook
+ */
+public class ConcurrentAddressBook {
+
+  private final ConcurrentSkipListSet<AddressBookEntry> entries =
+      new ConcurrentSkipListSet<AddressBookEntry>();
+
+  /**
+   * Any valid (non-null) AddressBookEntry object.
+   * @param e the AddressBookEntry object to be added to the AddressBook.
+   * @return a boolean indicating whether the AddressBook was able to add the contact.
+   */
+  public boolean addEntry(AddressBookEntry e) {
+    if (e == null) {
+      return false;
+    }
+    return entries.add(e);
+  }
+
+  /**
+   * Removes the passed entry object from the AddressBook.
+   * @param e the AddressBookEntry object to be removed from the AddressBook
+   * @return a boolean indicating whether or not the entry was removed.
+   */
+  public boolean removeEntry(AddressBookEntry e) {
+    if (e == null) {
+      return false;
+    }
+    return entries.remove(e);
+  }
+
+  /**
+   * Returns the number of entries. This takes time proportional to the number of entries
+   * and may be out of date as soon as it returns if other threads are changing the book.
+   * @return int the number of entries.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns all entries with a field containing the String, as AddressBook.searchEntries().
+   * @param s the String which we will search every Entry field for match.
+   * @return TreeSet<Entry> the set of all entries that matched the string.
+   */
+  public TreeSet<AddressBookEntry> searchEntries(String s) {
+    return searchEntries(new EntryQuery.QueryBuilder().substring(s).build());
+  }
+
+  /**
+   * Returns all entries matching the query, as AddressBook.searchEntries().
+   * @param query the EntryQuery to run.
+   * @return TreeSet<Entry> the set of all entries that matched the query.
+   */
+  public TreeSet<AddressBookEntry> searchEntries(EntryQuery query) {
+    TreeSet<AddressBookEntry> matches = new TreeSet<AddressBookEntry>();
+    Iterator<AddressBookEntry> it = iterateEntries(query);
+    while (it.hasNext()) {
+      matches.add(it.next());
+    }
+    return matches;
+  }
+
+  /**
+   * Searches the book with the query using several threads. The entries present when the
+   * search starts are split into fork/join pieces; books with fewer than 10,000 entries are
+   * searched on the calling thread.
+   * @param query the EntryQuery to run.
+   * @return TreeSet<Entry> the set of all entries that matched the query.
+   */
+  public TreeSet<AddressBookEntry> parallelSearchEntries(EntryQuery query) {
+    return ParallelSearch.search(entries, query);
+  }
+
+  /**
+   * Lazily iterates over the entries matching the query, in ID order. Unlike the iterators
+   * of AddressBook, this one may be used while other threads change the book.
+   * @param query the EntryQuery to run.
+   * @return Iterator<Entry> over the matching entries.
+   */
+  public Iterator<AddressBookEntry> iterateEntries(final EntryQuery query) {
+    return new FilteringIterator(entries.iterator()) {
+      @Override
+      boolean accept(AddressBookEntry e) {
+        return query.matches(e);
+      }
+    };
+  }
+
+  /**
+   * Saves the entries to the file at path in the same format as
+   * AddressBook.saveAddressBookToFile(). The entries present when the scan reaches them
+   * are saved; other threads are not blocked while the file is written.
+   * @param path the file which the entries will be saved at.
+   * @throws IOException if the path is invalid or the file cannot be written to.
+   */
+  public void saveAddressBookToFile(String path) throws IOException {
+    List<AddressBookEntry> saved = new ArrayList<AddressBookEntry>(entries);
+    AddressBookFile.write(path, saved, saved.size());
+  }
+
+  /**
+   * Reads a file written by AddressBook.saveAddressBookToFile() (or this class) into a new
+   * ConcurrentAddressBook.
+   * @param path the file which we will try to read the entries from.
+   * @return ConcurrentAddressBook holding the entries of the file.
+   * @throws IOException if the input path is invalid or the file cannot be read.
+   * @throws ClassNotFoundException if a serialized file does not hold a valid AddressBook.
+   */
+  public static ConcurrentAddressBook readAddressBookFromFile(String path)
+      throws IOException, ClassNotFoundException {
+    ConcurrentAddressBook book = new ConcurrentAddressBook();
+    book.entries.addAll(AddressBookFile.read(path).releaseEntries());
+    return book;
+  }
+}
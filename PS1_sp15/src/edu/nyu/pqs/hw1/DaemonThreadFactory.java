@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * DaemonThreadFactory makes the named daemon threads behind the background executors of
+ * this package, so that a pending listener, save or compaction never keeps the JVM alive.
+ * @author Vangie Shue
+ * @see ListenerDispatcher
+ * @see AsyncFileIO
+ */
+class DaemonThreadFactory implements ThreadFactory {
+
+  private final String name;
+
+  /**
+   * Creates a factory giving every thread the same name.
+   * @param name the name of the threads, shown in thread dumps.
+   */
+  DaemonThreadFactory(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public Thread newThread(Runnable r) {
+    Thread t = new Thread(r, name);
+    t.setDaemon(true);
+    return t;
+  }
+}
@@ -0,0 +1,401 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DuplicateDetector finds entries of an AddressBook that probably describe the same
+ * contact, e.g. a person imported twice. Comparing every pair of entries would take
+ * quadratic time, so entries are first grouped into blocks by keys that duplicates are
+ * likely to share: the digits of the phone number, the email address in lower case and a
+ * phonetic (Soundex) code of the first and last word of the name. Only entries sharing a
+ * block are compared, which keeps the work close to linear in the size of the book.
+ * <p>
+ * Candidate pairs are scored from 0 to 1 by weighing how alike their names, phone numbers,
+ * email addresses and postal addresses are; a field that is empty in either entry counts
+ * as unlike. Pairs scoring at least the minimum score are reported by findDuplicates(), or
+ * merged by mergeDuplicates().
+ * @author Vangie Shue
+ * @see AddressBook
+ */
+public class DuplicateDetector {
+
+  public static final double DEFAULT_MIN_SCORE = 0.6;
+
+  //Blocks larger than this only compare each entry with the next MAX_BLOCK_SIZE entries.
+  static final int MAX_BLOCK_SIZE = 200;
+  //Phone numbers are compared on at most this many trailing digits, ignoring country codes.
+  private static final int PHONE_KEY_DIGITS = 10;
+  private static final int MIN_PHONE_DIGITS = 7;
+
+  private static final double NAME_WEIGHT = 0.4;
+  private static final double PHONE_WEIGHT = 0.25;
+  private static final double EMAIL_WEIGHT = 0.25;
+  private static final double POSTAL_ADDRESS_WEIGHT = 0.1;
+
+  //Soundex digit of each letter 'a' to 'z'; '0' for vowels and the letters h, w and y.
+  private static final String SOUNDEX_CODES = "01230120022455012623010202";
+
+  private final double minScore;
+
+  /**
+   * A pair of entries that probably describe the same contact. The first entry has the
+   * lower ID.
+   */
+  public static class DuplicatePair {
+    private final AddressBookEntry first;
+    private final AddressBookEntry second;
+    private final double score;
+
+    DuplicatePair(AddressBookEntry first, AddressBookEntry second, double score) {
+      this.first = first;
+      this.second = second;
+      this.score = score;
+    }
+    public AddressBookEntry getFirst() {
+      return first;
+    }
+    public AddressBookEntry getSecond() {
+      return second;
+    }
+    public double getScore() {
+      return score;
+    }
+    @Override
+    public String toString() {
+      return first.getEntryID() + " ~ " + second.getEntryID() + " (" + score + ")";
+    }
+  }
+
+  public DuplicateDetector() {
+    this(DEFAULT_MIN_SCORE);
+  }
+
+  /**
+   * Creates a detector reporting pairs that score at least minScore.
+   * @param minScore the lowest score of a reported pair, from 0 to 1.
+   */
+  public DuplicateDetector(double minScore) {
+    if (!(minScore >= 0 && minScore <= 1)) {
+      throw new IllegalArgumentException("The minimum score must be between 0 and 1.");
+    }
+    this.minScore = minScore;
+  }
+
+  /**
+   * Returns the pairs of entries of the book that score at least the minimum score, best
+   * first. The AddressBook must not be changed while it is being searched.
+   * @param book the AddressBook to search.
+   * @return List<DuplicatePair> the likely duplicates.
+   */
+  public List<DuplicatePair> findDuplicates(AddressBook book) {
+    Map<String, List<Profile>> blocks = new HashMap<String, List<Profile>>();
+    for (AddressBookEntry e : book.getEntries()) {
+      Profile p = new Profile(e);
+      for (int k = 0; k < Profile.KEY_COUNT; k++) {
+        addToBlock(blocks, p.key(k), p);
+      }
+    }
+
+    List<DuplicatePair> pairs = new ArrayList<DuplicatePair>();
+    for (Map.Entry<String, List<Profile>> entry : blocks.entrySet()) {
+      List<Profile> block = entry.getValue();
+      int blockKey = Profile.keyIndex(entry.getKey());
+      //Blocks are filled in ID order, so a is always the entry with the lower ID.
+      for (int i = 0; i < block.size(); i++) {
+        Profile a = block.get(i);
+        int end = Math.min(block.size(), i + 1 + MAX_BLOCK_SIZE);
+        for (int j = i + 1; j < end; j++) {
+          Profile b = block.get(j);
+          if (a.comparedBefore(b, blockKey)) {
+            //Already compared in the block of an earlier key.
+            continue;
+          }
+          double score = score(a, b, minScore);
+          if (score >= 0) {
+            pairs.add(new DuplicatePair(a.entry, b.entry, score));
+          }
+        }
+      }
+    }
+    Collections.sort(pairs, new Comparator<DuplicatePair>() {
+      @Override
+      public int compare(DuplicatePair p, DuplicatePair q) {
+        return Double.compare(q.score, p.score);
+      }
+    });
+    return pairs;
+  }
+
+  /**
+   * Merges each group of duplicates into the entry of the group with the lowest ID: its
+   * empty fields are filled in from the other entries, in ID order, and the other entries
+   * are removed from the book. Pairs are joined transitively, so if a ~ b and b ~ c, all
+   * three are merged.
+   * @param book the AddressBook to clean up.
+   * @return int the number of entries removed.
+   */
+  public int mergeDuplicates(AddressBook book) {
+    List<DuplicatePair> pairs = findDuplicates(book);
+    //Union-find over entry IDs; an ID missing from the map is its own root.
+    IntIntMap parent = new IntIntMap();
+    Map<Integer, AddressBookEntry> byId = new HashMap<Integer, AddressBookEntry>();
+    for (DuplicatePair p : pairs) {
+      byId.put(p.first.getEntryID(), p.first);
+      byId.put(p.second.getEntryID(), p.second);
+      int a = find(parent, p.first.getEntryID());
+      int b = find(parent, p.second.getEntryID());
+      if (a != b) {
+        //The lower ID becomes the root, so each group's root is its oldest entry.
+        parent.put(Math.max(a, b), Math.min(a, b));
+      }
+    }
+
+    Map<Integer, List<AddressBookEntry>> groups = new HashMap<Integer, List<AddressBookEntry>>();
+    List<Integer> ids = new ArrayList<Integer>(byId.keySet());
+    Collections.sort(ids);
+    for (int id : ids) {
+      int root = find(parent, id);
+      if (root != id) {
+        List<AddressBookEntry> group = groups.get(root);
+        if (group == null) {
+          group = new ArrayList<AddressBookEntry>();
+          groups.put(root, group);
+        }
+        group.add(byId.get(id));
+      }
+    }
+
+    int removed = 0;
+    for (Map.Entry<Integer, List<AddressBookEntry>> group : groups.entrySet()) {
+      AddressBookEntry survivor = byId.get(group.getKey());
+      for (AddressBookEntry duplicate : group.getValue()) {
+        fillEmptyFields(survivor, duplicate);
+        if (book.removeEntry(duplicate)) {
+          removed++;
+        }
+      }
+    }
+    return removed;
+  }
+
+  /*
+   * Returns the root of the set holding id, halving the path on the way.
+   */
+  private static int find(IntIntMap parent, int id) {
+    int p = parent.get(id);
+    while (p != IntIntMap.MISSING) {
+      int grandparent = parent.get(p);
+      if (grandparent == IntIntMap.MISSING) {
+        return p;
+      }
+      parent.put(id, grandparent);
+      id = grandparent;
+      p = parent.get(id);
+    }
+    return id;
+  }
+
+  private static void fillEmptyFields(AddressBookEntry survivor, AddressBookEntry duplicate) {
+    for (EntryField field : EntryField.values()) {
+      String value = field.getValue(duplicate);
+      if (field.getValue(survivor).isEmpty() && !value.isEmpty()) {
+        try {
+          field.setValue(survivor, value);
+        } catch (Exception ex) {
+          //Not reached: the value was already accepted by the duplicate entry.
+          throw new IllegalStateException(ex.getMessage(), ex);
+        }
+      }
+    }
+  }
+
+  private static void addToBlock(Map<String, List<Profile>> blocks, String key, Profile p) {
+    if (key == null) {
+      return;
+    }
+    List<Profile> block = blocks.get(key);
+    if (block == null) {
+      block = new ArrayList<Profile>(2);
+      blocks.put(key, block);
+    }
+    p.positions[Profile.keyIndex(key)] = block.size();
+    block.add(p);
+  }
+
+  /**
+   * The normalized fields and blocking keys of an entry, worked out once per search.
+   */
+  private static class Profile {
+    static final int KEY_COUNT = 3;
+    //Prefixes of the phone, email and name keys, in the order the keys are numbered.
+    private static final String KEY_PREFIXES = "pen";
+
+    final AddressBookEntry entry;
+    final String name;
+    final String phone;
+    final String email;
+    final String postalAddress;
+    private final String[] keys = new String[KEY_COUNT];
+    //Position of the entry in the block of each key, set as the blocks are filled.
+    final int[] positions = new int[KEY_COUNT];
+
+    Profile(AddressBookEntry e) {
+      entry = e;
+      name = normalizeName(e.getName());
+      phone = phoneDigits(e.getCanonicalPhoneNumber());
+      email = e.getEmailAddress().toLowerCase();
+      postalAddress = e.getPostalAddress().trim().toLowerCase();
+      keys[0] = (phone == null) ? null : "p:" + phone;
+      keys[1] = email.isEmpty() ? null : "e:" + email;
+      keys[2] = nameKey(name);
+    }
+
+    String key(int k) {
+      return keys[k];
+    }
+
+    static int keyIndex(String key) {
+      return KEY_PREFIXES.indexOf(key.charAt(0));
+    }
+
+    /*
+     * Whether the pair was already compared in the block of a key numbered below k: both
+     * entries fall into that block, and other is within MAX_BLOCK_SIZE entries after this
+     * one there. A pair outside the window of an earlier block is still compared in the
+     * next block the two share.
+     */
+    boolean comparedBefore(Profile other, int k) {
+      for (int i = 0; i < k; i++) {
+        if (keys[i] != null && keys[i].equals(other.keys[i])
+            && other.positions[i] - positions[i] <= MAX_BLOCK_SIZE) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /*
+   * Returns the trailing digits of a canonical phone number, or null if it is too short
+   * to tell contacts apart.
+   */
+  private static String phoneDigits(String canonical) {
+    String digits = canonical.startsWith("+") ? canonical.substring(1) : canonical;
+    if (digits.length() < MIN_PHONE_DIGITS) {
+      return null;
+    }
+    return digits.substring(Math.max(0, digits.length() - PHONE_KEY_DIGITS));
+  }
+
+  private static String nameKey(String normalizedName) {
+    String[] words = normalizedName.split(" ");
+    String first = soundex(words[0]);
+    if (first == null) {
+      return null;
+    }
+    String last = soundex(words[words.length - 1]);
+    return "n:" + first + ((last == null) ? "" : last);
+  }
+
+  /*
+   * Lower cases the name and collapses runs of whitespace into single spaces.
+   */
+  private static String normalizeName(String name) {
+    StringBuilder normalized = new StringBuilder(name.length());
+    boolean space = false;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (Character.isWhitespace(c)) {
+        space = normalized.length() > 0;
+      } else {
+        if (space) {
+          normalized.append(' ');
+          space = false;
+        }
+        normalized.append(Character.toLowerCase(c));
+      }
+    }
+    return normalized.toString();
+  }
+
+  /**
+   * Returns the American Soundex code of a word: its first letter followed by three digits
+   * standing for the consonant sounds after it, e.g. "r163" for both "robert" and "rupert".
+   * @param word the lower case word to encode.
+   * @return String the code, or null if the word does not start with a letter a to z.
+   */
+  static String soundex(String word) {
+    if (word.isEmpty() || word.charAt(0) < 'a' || word.charAt(0) > 'z') {
+      return null;
+    }
+    char[] code = {word.charAt(0), '0', '0', '0'};
+    int length = 1;
+    char last = SOUNDEX_CODES.charAt(word.charAt(0) - 'a');
+    for (int i = 1; i < word.length() && length < code.length; i++) {
+      char c = word.charAt(i);
+      if (c < 'a' || c > 'z') {
+        continue;
+      }
+      char digit = SOUNDEX_CODES.charAt(c - 'a');
+      if (digit != '0' && digit != last) {
+        code[length++] = digit;
+      }
+      //h and w do not separate letters with the same code; vowels do.
+      if (c != 'h' && c != 'w') {
+        last = digit;
+      }
+    }
+    return new String(code);
+  }
+
+  /*
+   * Scores how likely two entries are to describe the same contact, from 0 to 1. The
+   * exact fields are scored first, so that the edit distances of the names and postal
+   * addresses can be bounded by what is still needed to reach minScore.
+   * Returns -1 if the score is below minScore.
+   */
+  private static double score(Profile a, Profile b, double minScore) {
+    double score = 0;
+    if (a.phone != null && a.phone.equals(b.phone)) {
+      score += PHONE_WEIGHT;
+    }
+    if (!a.email.isEmpty() && a.email.equals(b.email)) {
+      score += EMAIL_WEIGHT;
+    }
+    boolean hasAddresses = !a.postalAddress.isEmpty() && !b.postalAddress.isEmpty();
+    if (!a.name.isEmpty() && !b.name.isEmpty()) {
+      double needed = minScore - score - (hasAddresses ? POSTAL_ADDRESS_WEIGHT : 0);
+      if (needed > NAME_WEIGHT) {
+        return -1;
+      }
+      double similarity = EditDistance.similarity(a.name, b.name,
+          Math.max(0, needed / NAME_WEIGHT));
+      if (similarity < 0) {
+        return -1;
+      }
+      score += NAME_WEIGHT * similarity;
+    }
+    if (hasAddresses) {
+      double needed = minScore - score;
+      if (needed > POSTAL_ADDRESS_WEIGHT) {
+        return -1;
+      }
+      double similarity = EditDistance.similarity(a.postalAddress, b.postalAddress,
+          Math.max(0, needed / POSTAL_ADDRESS_WEIGHT));
+      if (similarity < 0) {
+        return -1;
+      }
+      score += POSTAL_ADDRESS_WEIGHT * similarity;
+    }
+    return (score >= minScore) ? score : -1;
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+/**
+ * EditDistance computes the Levenshtein distance between Strings: the number of single
+ * character insertions, deletions and substitutions that turn one into the other.
+ * @author Vangie Shue
+ * @see DuplicateDetector
+ */
+class EditDistance {
+
+  private EditDistance() {
+  }
+
+  /**
+   * Returns the edit distance between a and b, giving up as soon as it is known to be
+   * larger than max. Only the band of 2 * max + 1 diagonals around the main one is
+   * computed, so a small bound keeps this linear in the length of the Strings.
+   * @param a the first String.
+   * @param b the second String.
+   * @param max the largest distance of interest.
+   * @return int the distance, or max + 1 if it is larger than max.
+   */
+  static int distance(String a, String b, int max) {
+    int n = a.length();
+    int m = b.length();
+    if (Math.abs(n - m) > max) {
+      return max + 1;
+    }
+    if (n == 0 || m == 0) {
+      return Math.max(n, m);
+    }
+    int outside = max + 1;
+    int[] previous = new int[m + 1];
+    int[] current = new int[m + 1];
+    for (int j = 0; j <= m; j++) {
+      previous[j] = (j <= max) ? j : outside;
+    }
+    for (int i = 1; i <= n; i++) {
+      int from = Math.max(1, i - max);
+      int to = Math.min(m, i + max);
+      current[0] = (i <= max) ? i : outside;
+      if (from > 1) {
+        current[from - 1] = outside;
+      }
+      int rowMin = current[0];
+      char c = a.charAt(i - 1);
+      for (int j = from; j <= to; j++) {
+        int cost = (c == b.charAt(j - 1)) ? 0 : 1;
+        int d = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+        current[j] = Math.min(d, outside);
+        rowMin = Math.min(rowMin, current[j]);
+      }
+      if (to < m) {
+        current[to + 1] = outside;
+      }
+      if (rowMin > max) {
+        return outside;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[m];
+  }
+
+  /**
+   * Returns how alike two Strings are, from 0 (nothing in common) to 1 (equal), as one
+   * minus their edit distance divided by the length of the longer String.
+   * @param a the first String.
+   * @param b the second String.
+   * @return double the similarity of the Strings.
+   */
+  static double similarity(String a, String b) {
+    return similarity(a, b, 0);
+  }
+
+  /**
+   * Returns the similarity of two Strings if it is at least min. The edit distance is
+   * bounded by what min allows, so Strings that are far apart are rejected quickly.
+   * @param a the first String.
+   * @param b the second String.
+   * @param min the lowest similarity of interest, from 0 to 1.
+   * @return double the similarity of the Strings, or -1 if it is below min.
+   */
+  static double similarity(String a, String b, double min) {
+    int longer = Math.max(a.length(), b.length());
+    if (longer == 0) {
+      return 1.0;
+    }
+    int max = (int) Math.floor((1.0 - min) * longer + 1e-9);
+    int d = distance(a, b, max);
+    return (d > max) ? -1 : 1.0 - (double) d / longer;
+  }
+}
@@ -15,7 +15,11 @@ import java.io.Serializable;
  * @see AddressBookEntry
  */
 class EmailAddress implements Serializable {
-  private String email;
+  //Pinned to the value of the original class so that previously saved books still load.
+  private static final long serialVersionUID = 3847173614263278202L;
+
+  //Volatile so that changes are seen by threads searching a ConcurrentAddressBook.
+  private volatile String email;
 
   EmailAddress() {
     email = "";
@@ -31,6 +35,24 @@ class EmailAddress implements Serializable {
     setEmailAddress(s);
   }
   
+  /**
+   * Returns a new EmailAddress holding the same, already validated, address.
+   * @return EmailAddress a copy of this object.
+   */
+  EmailAddress copy() {
+    EmailAddress copy = new EmailAddress();
+    copy.email = email;
+    return copy;
+  }
+
+  /**
+   * Replaces the address with the equal String held by the pool.
+   * @param pool the StringPool to intern the address in.
+   */
+  void internEmailAddress(StringPool pool) {
+    email = pool.intern(email);
+  }
+
   /**
    * setEmailAddress determines whether or not the input String is a valid email address.
    * If it is valid, the email field will be set to the String.
@@ -49,10 +71,11 @@ class EmailAddress implements Serializable {
    * validateEmailAddress tests to see if the input String is valid.
    * If the String is not an empty String, it must contain an "@" symbol and
    * at least one "." after the "@" sign.
+   * It is static so that bulk imports can check addresses without catching exceptions.
    * @param s String to validate.
    * @return boolean indicating whether or not the String is a valid email.
    */
-  private boolean validateEmailAddress(String s) {
+  static boolean validateEmailAddress(String s) {
     if(s.equals("")) {
       return true;
     } else if(s.indexOf("@")>0 && s.indexOf(".")>s.indexOf("@")) {
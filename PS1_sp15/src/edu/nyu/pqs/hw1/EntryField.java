@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+/**
+ * EntryField names the five searchable fields of an AddressBookEntry. Clients use it to
+ * restrict an EntryQuery to particular fields; indexes and listeners use it to refer to a
+ * field without depending on a particular getter.
+ * @author Vangie Shue
+ * @see AddressBookEntry
+ * @see EntryQuery
+ */
+public enum EntryField {
+  NAME {
+    @Override
+    String getValue(EntryView e) {
+      return e.getName();
+    }
+
+    @Override
+    void setValue(AddressBookEntry e, String value) {
+      e.setName(value);
+    }
+  },
+  POSTAL_ADDRESS {
+    @Override
+    String getValue(EntryView e) {
+      return e.getPostalAddress();
+    }
+
+    @Override
+    void setValue(AddressBookEntry e, String value) {
+      e.setPostalAddress(value);
+    }
+  },
+  PHONE_NUMBER {
+    @Override
+    String getValue(EntryView e) {
+      return e.getPhoneNumber();
+    }
+
+    @Override
+    void setValue(AddressBookEntry e, String value) {
+      e.setPhoneNumber(value);
+    }
+  },
+  EMAIL_ADDRESS {
+    @Override
+    String getValue(EntryView e) {
+      return e.getEmailAddress();
+    }
+
+    @Override
+    void setValue(AddressBookEntry e, String value) throws Exception {
+      e.setEmailAddress(value);
+    }
+  },
+  NOTE {
+    @Override
+    String getValue(EntryView e) {
+      return e.getNote();
+    }
+
+    @Override
+    void setValue(AddressBookEntry e, String value) {
+      e.setNote(value);
+    }
+  };
+
+  /**
+   * Returns the current value of this field for the given entry or view.
+   * @param e the entry to read the field from.
+   * @return String the field value, never null.
+   */
+  abstract String getValue(EntryView e);
+
+  /**
+   * Sets this field of the given entry through its public setter, so the usual
+   * normalization and validation apply.
+   * @param e the AddressBookEntry to change.
+   * @param value the new value of the field.
+   * @throws Exception if the value is rejected, i.e. an invalid email address.
+   */
+  abstract void setValue(AddressBookEntry e, String value) throws Exception;
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+/**
+ * EntryIndex is implemented by the secondary indexes an AddressBook keeps over its entries.
+ * add() and remove() read whatever fields the index needs from the entry at the time of
+ * the call. When one field of an indexed entry changes, the AddressBook calls update()
+ * instead, so that an index only touches the postings of that field.
+ * @author Vangie Shue
+ * @see AddressBook
+ */
+interface EntryIndex {
+
+  /**
+   * Adds the entry, as it currently is, to the index.
+   * @param e the entry to add.
+   */
+  void add(AddressBookEntry e);
+
+  /**
+   * Removes the entry, as it currently is, from the index.
+   * @param e the entry to remove.
+   */
+  void remove(AddressBookEntry e);
+
+  /**
+   * Moves the entry from the postings of the old value of a field to those of its new
+   * value. The entry was added before the change and already holds the new value.
+   * @param e the entry that changed.
+   * @param field the field that changed.
+   * @param oldValue the value the field had before the change.
+   */
+  void update(AddressBookEntry e, EntryField field, String oldValue);
+
+  /**
+   * Removes every entry from the index.
+   */
+  void clear();
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.regex.Pattern;
+
+/**
+ * EntryQuery is a compiled search over selected fields of AddressBookEntry objects.
+ * Queries are created with the QueryBuilder and are immutable, so one query can be run
+ * against every entry of an AddressBook (or several AddressBooks) without being rebuilt.
+ * Regular expressions are compiled once, when the query is built.
+ * <p>
+ * An entry matches if at least one of the selected fields matches the text.
+ * @author Vangie Shue
+ * @see AddressBook#searchEntries(EntryQuery)
+ * @see EntryField
+ */
+public final class EntryQuery {
+
+  /**
+   * The ways a field value can be compared to the text of the query.
+   */
+  public enum MatchType {
+    /** The field equals the text. */
+    EXACT,
+    /** The field starts with the text. */
+    PREFIX,
+    /** The field contains the text, as in AddressBookEntry.hasFieldMatch(). */
+    SUBSTRING,
+    /** The text is a regular expression which is found somewhere in the field. */
+    REGEX
+  }
+
+  private final EntryField[] fields;
+  private final MatchType matchType;
+  private final String text;
+  private final Pattern pattern;
+
+  private EntryQuery(QueryBuilder query) {
+    this.fields = query.fields.toArray(new EntryField[query.fields.size()]);
+    this.matchType = query.matchType;
+    this.text = query.text;
+    this.pattern = (matchType == MatchType.REGEX) ? Pattern.compile(text) : null;
+  }
+
+  /**
+   * QueryBuilder collects the fields, match type and text of an EntryQuery. A match type
+   * and text must be given before build() is called; if several are given, the last one is
+   * used.
+   */
+  public static class QueryBuilder {
+    private EnumSet<EntryField> fields = EnumSet.noneOf(EntryField.class);
+    private MatchType matchType = null;
+    private String text = null;
+
+    /**
+     * Restricts the query to the given fields. May be called several times; if it is never
+     * called the query checks all fields.
+     * @param newfields the fields to search.
+     * @return this QueryBuilder.
+     */
+    public QueryBuilder fields(EntryField... newfields) {
+      for (EntryField field : newfields) {
+        this.fields.add(field);
+      }
+      return this;
+    }
+
+    /**
+     * Matches entries with a selected field equal to the text.
+     * @param s the text the field must equal.
+     * @return this QueryBuilder.
+     */
+    public QueryBuilder exact(String s) {
+      return match(MatchType.EXACT, s);
+    }
+
+    /**
+     * Matches entries with a selected field starting with the text.
+     * @param s the text the field must start with.
+     * @return this QueryBuilder.
+     */
+    public QueryBuilder prefix(String s) {
+      return match(MatchType.PREFIX, s);
+    }
+
+    /**
+     * Matches entries with a selected field containing the text.
+     * @param s the text the field must contain.
+     * @return this QueryBuilder.
+     */
+    public QueryBuilder substring(String s) {
+      return match(MatchType.SUBSTRING, s);
+    }
+
+    /**
+     * Matches entries with a selected field in which the regular expression is found. The
+     * expression is only compiled by build(), which throws an IllegalArgumentException
+     * (a PatternSyntaxException) if it is invalid.
+     * @param s the regular expression, in the syntax of java.util.regex.Pattern.
+     * @return this QueryBuilder.
+     */
+    public QueryBuilder regex(String s) {
+      return match(MatchType.REGEX, s);
+    }
+
+    /**
+     * Sets how the selected fields are compared to the text.
+     * @param type the MatchType to use.
+     * @param s the text to compare the fields to, or a regular expression for REGEX.
+     * @return this QueryBuilder.
+     */
+    public QueryBuilder match(MatchType type, String s) {
+      this.matchType = type;
+      this.text = s;
+      return this;
+    }
+
+    /**
+     * Builds the query, compiling the regular expression if there is one.
+     * @return EntryQuery the compiled query.
+     * @throws IllegalArgumentException if no match type or text was given, or if the regex
+     *     is invalid (a PatternSyntaxException).
+     */
+    public EntryQuery build() {
+      if (matchType == null || text == null) {
+        throw new IllegalArgumentException("EntryQuery needs a match type and a non-null text.");
+      }
+      if (fields.isEmpty()) {
+        fields = EnumSet.allOf(EntryField.class);
+      }
+      return new EntryQuery(this);
+    }
+  }
+
+  /**
+   * Returns how the selected fields are compared to the text.
+   * @return MatchType the match type of the query.
+   */
+  public MatchType getMatchType() {
+    return matchType;
+  }
+
+  /**
+   * Returns the text of the query, or the regular expression for a REGEX query.
+   * @return String the text the fields are compared to.
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * Checks the selected fields of the entry, stopping at the first field that matches.
+   * Works on AddressBookEntry objects and on the views returned by an EntryStore.
+   * @param e the entry to check.
+   * @return boolean true if any selected field matches the query.
+   */
+  public boolean matches(EntryView e) {
+    for (EntryField field : fields) {
+      if (matchesValue(field.getValue(e))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Compares a single field value against the query.
+   */
+  private boolean matchesValue(String value) {
+    switch (matchType) {
+      case EXACT:
+        return value.equals(text);
+      case PREFIX:
+        return value.startsWith(text);
+      case SUBSTRING:
+        return value.indexOf(text) >= 0;
+      default:
+        return pattern.matcher(value).find();
+    }
+  }
+
+  /**
+   * Two queries are equal if they check the same fields in the same way for the same text,
+   * so that equal queries share an entry in a QueryCache.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof EntryQuery)) {
+      return false;
+    }
+    EntryQuery other = (EntryQuery) o;
+    return matchType == other.matchType && text.equals(other.text)
+        && Arrays.equals(fields, other.fields);
+  }
+
+  @Override
+  public int hashCode() {
+    return (matchType.hashCode() * 31 + text.hashCode()) * 31 + Arrays.hashCode(fields);
+  }
+
+  /**
+   * Any field matching an EXACT, PREFIX or SUBSTRING query contains the query text, so
+   * AddressBook can narrow those queries down with its trigram index. A regex can match
+   * text that appears nowhere in the pattern, so it always needs a full scan.
+   * @return String the text every matching entry contains, or null for a regex query.
+   */
+  String getRequiredText() {
+    return (matchType == MatchType.REGEX) ? null : text;
+  }
+}
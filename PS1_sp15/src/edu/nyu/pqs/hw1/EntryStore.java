@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+/**
+ * EntryStore is a storage backend that holds contacts in a compact form instead of as a
+ * graph of AddressBookEntry, PhoneNumber, EmailAddress and String objects. A store copies
+ * the fields of the entries added to it and hands out EntryView objects that decode the
+ * fields on demand; changing a view's source entry afterwards does not change the store.
+ * Stores are keyed by entry ID and are not thread-safe.
+ * @author Vangie Shue
+ * @see EntryView
+ * @see ColumnarEntryStore
+ */
+public interface EntryStore extends Iterable<EntryView> {
+
+  /**
+   * Copies the entry into the store, replacing any stored entry with the same ID.
+   * @param e the entry to store.
+   */
+  public void add(EntryView e);
+
+  /**
+   * Removes the entry with the given ID.
+   * @param id the ID of the entry to remove.
+   * @return boolean true if the store held the entry.
+   */
+  public boolean remove(int id);
+
+  /**
+   * Returns a view of the stored entry with the given ID. The view stays valid as long as
+   * the entry is in the store.
+   * @param id the ID of the entry.
+   * @return EntryView of the entry, or null if the store does not hold it.
+   */
+  public EntryView get(int id);
+
+  /**
+   * Returns the number of entries in the store.
+   * @return int the number of entries.
+   */
+  public int size();
+}
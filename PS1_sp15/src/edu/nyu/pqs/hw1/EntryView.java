@@ -0,0 +1,22 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+/**
+ * EntryView is the read-only side of a contact: its ID and the string form of its five
+ * fields. AddressBookEntry implements it, and so do the lightweight views handed out by an
+ * EntryStore, which read the fields from compact storage only when a getter is called.
+ * @author Vangie Shue
+ * @see AddressBookEntry
+ * @see EntryStore
+ */
+public interface EntryView {
+  public int getEntryID();
+  public String getName();
+  public String getPostalAddress();
+  public String getPhoneNumber();
+  public String getEmailAddress();
+  public String getNote();
+}
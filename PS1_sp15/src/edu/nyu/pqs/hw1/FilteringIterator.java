@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * FilteringIterator lazily returns the elements of another Iterator that pass accept().
+ * Elements are only examined when the caller asks for the next one, so a caller that stops
+ * early never pays for the rest of the source.
+ * @author Vangie Shue
+ * @see AddressBook#iterateEntries(EntryQuery)
+ */
+abstract class FilteringIterator implements Iterator<AddressBookEntry> {
+
+  private final Iterator<AddressBookEntry> source;
+  private AddressBookEntry next = null;
+
+  FilteringIterator(Iterator<AddressBookEntry> source) {
+    this.source = source;
+  }
+
+  /**
+   * Decides whether the element is returned by this iterator.
+   * @param e the next element of the source.
+   * @return boolean true if e should be returned.
+   */
+  abstract boolean accept(AddressBookEntry e);
+
+  @Override
+  public boolean hasNext() {
+    while (next == null && source.hasNext()) {
+      AddressBookEntry e = source.next();
+      if (accept(e)) {
+        next = e;
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public AddressBookEntry next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    AddressBookEntry e = next;
+    next = null;
+    return e;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Remove entries through the AddressBook.");
+  }
+}
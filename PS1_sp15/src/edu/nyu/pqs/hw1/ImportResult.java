@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ImportResult reports the outcome of an AddressBookImporter run: how many contacts were
+ * added and which rows were rejected and why. Only the first MAX_REPORTED_ERRORS errors
+ * are kept, so an import of a badly broken file cannot run out of memory; getErrorCount()
+ * still counts all of them.
+ * @author Vangie Shue
+ * @see AddressBookImporter
+ */
+public class ImportResult {
+
+  public static final int MAX_REPORTED_ERRORS = 1000;
+
+  private int importedCount = 0;
+  private int errorCount = 0;
+  private final List<RowError> errors = new ArrayList<RowError>();
+
+  /**
+   * A rejected row (for CSV) or card (for vCard), identified by the line it starts on.
+   */
+  public static class RowError {
+    private final int line;
+    private final String message;
+
+    RowError(int line, String message) {
+      this.line = line;
+      this.message = message;
+    }
+    public int getLine() {
+      return line;
+    }
+    public String getMessage() {
+      return message;
+    }
+    @Override
+    public String toString() {
+      return "line " + line + ": " + message;
+    }
+  }
+
+  void addImported(int count) {
+    importedCount += count;
+  }
+
+  void addError(int line, String message) {
+    errorCount++;
+    if (errors.size() < MAX_REPORTED_ERRORS) {
+      errors.add(new RowError(line, message));
+    }
+  }
+
+  public int getImportedCount() {
+    return importedCount;
+  }
+
+  public int getErrorCount() {
+    return errorCount;
+  }
+
+  /**
+   * Returns the first MAX_REPORTED_ERRORS errors in the order they were found.
+   * @return List<RowError> the reported errors.
+   */
+  public List<RowError> getErrors() {
+    return Collections.unmodifiableList(errors);
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+/**
+ * IntIntMap is a hash map from int keys to int values stored in two parallel arrays with
+ * open addressing (linear probing), so neither keys nor values are boxed. Entry IDs start
+ * at 1, so 0 marks an empty slot and cannot be used as a key.
+ * @author Vangie Shue
+ * @see IntKeyTable
+ */
+class IntIntMap extends IntKeyTable {
+
+  static final int MISSING = -1;
+
+  private int[] values = new int[capacity()];
+
+  /**
+   * Returns the value stored for the key.
+   * @param key the key, not 0.
+   * @return int the value, or MISSING if the key is not in the map.
+   */
+  int get(int key) {
+    int slot = slotOf(key);
+    return (slot < 0) ? MISSING : values[slot];
+  }
+
+  /**
+   * Stores the value for the key, replacing any previous value.
+   * @param key the key, not 0.
+   * @param value the value to store.
+   * @throws IllegalArgumentException if key is 0.
+   */
+  void put(int key, int value) {
+    //insert() may grow the value array, so it must run before values is read.
+    int slot = insert(key);
+    values[slot] = value;
+  }
+
+  /**
+   * Removes the key, moving later keys of the same probe run back so lookups still find them.
+   * @param key the key to remove.
+   * @return int the value that was stored, or MISSING if the key was not in the map.
+   */
+  int remove(int key) {
+    int slot = slotOf(key);
+    if (slot < 0) {
+      return MISSING;
+    }
+    int removed = values[slot];
+    removeSlot(slot);
+    return removed;
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int slot) {
+  }
+
+  @Override
+  void resizeValues(int capacity, int[] oldKeys, int[] newSlots) {
+    int[] oldValues = values;
+    values = new int[capacity];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        values[newSlots[i]] = oldValues[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.Arrays;
+
+/**
+ * IntKeyTable holds the int keys of a hash map with open addressing (linear probing):
+ * probing, growing and removal by backward shifting. Subclasses keep the values in an
+ * array parallel to the keys and move them when the table does. Entry IDs start at 1, so
+ * 0 marks an empty slot and cannot be used as a key.
+ * @author Vangie Shue
+ * @see IntIntMap
+ * @see IntObjectMap
+ */
+abstract class IntKeyTable {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] keys = new int[INITIAL_CAPACITY];
+  private int size = 0;
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of slots, which is the length the value array must have.
+   * @return int the number of slots, a power of two.
+   */
+  int capacity() {
+    return keys.length;
+  }
+
+  /**
+   * Returns the slot holding the key.
+   * @param key the key, 0 for none.
+   * @return int the slot, or -1 if the key is not in the table.
+   */
+  int slotOf(int key) {
+    if (key == 0) {
+      return -1;
+    }
+    int slot = find(key);
+    return (keys[slot] == key) ? slot : -1;
+  }
+
+  /**
+   * Returns the slot of the key, adding the key first if it is not in the table. The table
+   * may grow before the key is added, so the slot is only valid until the next insert().
+   * @param key the key, not 0.
+   * @return int the slot of the key.
+   * @throws IllegalArgumentException if key is 0.
+   */
+  int insert(int key) {
+    if (key == 0) {
+      throw new IllegalArgumentException(getClass().getSimpleName() + " keys cannot be 0.");
+    }
+    int slot = find(key);
+    if (keys[slot] == key) {
+      return slot;
+    }
+    if ((size + 1) * 4 > keys.length * 3) {
+      resize();
+      slot = find(key);
+    }
+    keys[slot] = key;
+    size++;
+    return slot;
+  }
+
+  /**
+   * Empties the slot, moving later keys of the same probe run back so lookups still find
+   * them.
+   * @param slot a slot returned by slotOf().
+   */
+  void removeSlot(int slot) {
+    int mask = keys.length - 1;
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (keys[next] != 0) {
+      int home = hash(keys[next]) & mask;
+      //Move the key into the hole if the hole lies between its home slot and its slot.
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        keys[hole] = keys[next];
+        moveValue(next, hole);
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[hole] = 0;
+    clearValue(hole);
+    size--;
+  }
+
+  /**
+   * Removes every key, keeping the table at its current size. Subclasses clear their
+   * values themselves.
+   */
+  void clearKeys() {
+    Arrays.fill(keys, 0);
+    size = 0;
+  }
+
+  /**
+   * Moves the value in slot from to slot to.
+   * @param from the slot the value is in.
+   * @param to the empty slot to move it to.
+   */
+  abstract void moveValue(int from, int to);
+
+  /**
+   * Drops the value in a slot that no longer holds a key.
+   * @param slot the slot to clear.
+   */
+  abstract void clearValue(int slot);
+
+  /**
+   * Moves the values into a new array of the given capacity after the table has grown.
+   * @param capacity the new number of slots.
+   * @param oldKeys the keys before the table grew, 0 for an empty slot.
+   * @param newSlots the new slot of the key in each non-empty old slot.
+   */
+  abstract void resizeValues(int capacity, int[] oldKeys, int[] newSlots);
+
+  /*
+   * Returns the slot holding the key, or the empty slot where it would be inserted.
+   */
+  private int find(int key) {
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (keys[slot] != 0 && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void resize() {
+    int[] oldKeys = keys;
+    int[] newSlots = new int[oldKeys.length];
+    keys = new int[oldKeys.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int slot = find(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        newSlots[i] = slot;
+      }
+    }
+    resizeValues(keys.length, oldKeys, newSlots);
+  }
+
+  /*
+   * Spreads sequential IDs over the table.
+   */
+  static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.Arrays;
+
+/**
+ * IntObjectMap is a hash map from int keys to objects, stored like IntIntMap in two
+ * parallel arrays with open addressing (linear probing), so the keys are not boxed and a
+ * lookup touches one int array and, on a hit, one object array slot. Entry IDs start at 1,
+ * so 0 marks an empty slot and cannot be used as a key.
+ * @author Vangie Shue
+ * @see IntKeyTable
+ * @see IntIntMap
+ */
+class IntObjectMap<V> extends IntKeyTable {
+
+  private Object[] values = new Object[capacity()];
+
+  /**
+   * Returns the value stored for the key.
+   * @param key the key.
+   * @return V the value, or null if the key is not in the map.
+   */
+  @SuppressWarnings("unchecked")
+  V get(int key) {
+    int slot = slotOf(key);
+    return (slot < 0) ? null : (V) values[slot];
+  }
+
+  /**
+   * Stores the value for the key, replacing any previous value.
+   * @param key the key, not 0.
+   * @param value the value to store, not null.
+   * @throws IllegalArgumentException if key is 0.
+   */
+  void put(int key, V value) {
+    //insert() may grow the value array, so it must run before values is read.
+    int slot = insert(key);
+    values[slot] = value;
+  }
+
+  /**
+   * Removes the key, moving later keys of the same probe run back so lookups still find them.
+   * @param key the key to remove.
+   * @return V the value that was stored, or null if the key was not in the map.
+   */
+  @SuppressWarnings("unchecked")
+  V remove(int key) {
+    int slot = slotOf(key);
+    if (slot < 0) {
+      return null;
+    }
+    V removed = (V) values[slot];
+    removeSlot(slot);
+    return removed;
+  }
+
+  /**
+   * Removes every key, keeping the arrays at their current size.
+   */
+  void clear() {
+    clearKeys();
+    Arrays.fill(values, null);
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int slot) {
+    //Let the removed object be collected.
+    values[slot] = null;
+  }
+
+  @Override
+  void resizeValues(int capacity, int[] oldKeys, int[] newSlots) {
+    Object[] oldValues = values;
+    values = new Object[capacity];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        values[newSlots[i]] = oldValues[i];
+      }
+    }
+  }
+}
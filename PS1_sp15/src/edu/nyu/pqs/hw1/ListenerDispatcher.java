@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ListenerDispatcher observes an AddressBook on behalf of one AddressBookListener. Changes
+ * are queued as AddressBookEvents on the thread making them, which only takes a short lock,
+ * and handed to the listener in batches on a daemon thread of its own. While the listener
+ * is busy, new events pile up into the next batch, and field changes to an entry whose
+ * event has not been delivered yet are merged into that event.
+ * @author Vangie Shue
+ * @see AddressBookListener
+ */
+class ListenerDispatcher implements AddressBookObserver {
+
+  private final AddressBookListener listener;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(
+      new DaemonThreadFactory("AddressBookListener dispatcher"));
+
+  //Events waiting to be delivered, and the latest of them for each entry ID.
+  private List<AddressBookEvent> pending = new ArrayList<AddressBookEvent>();
+  private final Map<Integer, AddressBookEvent> pendingById =
+      new HashMap<Integer, AddressBookEvent>();
+  private boolean scheduled = false;
+
+  private final Runnable deliver = new Runnable() {
+    @Override
+    public void run() {
+      List<AddressBookEvent> batch;
+      synchronized (ListenerDispatcher.this) {
+        batch = pending;
+        pending = new ArrayList<AddressBookEvent>();
+        pendingById.clear();
+        scheduled = false;
+      }
+      listener.entriesChanged(Collections.unmodifiableList(batch));
+    }
+  };
+
+  ListenerDispatcher(AddressBookListener listener) {
+    this.listener = listener;
+  }
+
+  AddressBookListener getListener() {
+    return listener;
+  }
+
+  @Override
+  public void entryAdded(AddressBookEntry e) {
+    enqueue(new AddressBookEvent(AddressBookEvent.Type.ADDED, e,
+        EnumSet.allOf(EntryField.class)));
+  }
+
+  @Override
+  public void entryRemoved(AddressBookEntry e) {
+    enqueue(new AddressBookEvent(AddressBookEvent.Type.REMOVED, e,
+        EnumSet.noneOf(EntryField.class)));
+  }
+
+  @Override
+  public synchronized void entryChanged(AddressBookEntry e, EntryField field) {
+    AddressBookEvent last = pendingById.get(e.getEntryID());
+    if (last != null && last.getType() != AddressBookEvent.Type.REMOVED) {
+      //The listener has not seen the entry's previous event yet, so it can report this too.
+      last.addChangedField(field);
+      return;
+    }
+    enqueue(new AddressBookEvent(AddressBookEvent.Type.UPDATED, e, EnumSet.of(field)));
+  }
+
+  /**
+   * Stops the dispatcher thread once the events already queued have been delivered.
+   */
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  private synchronized void enqueue(AddressBookEvent event) {
+    pending.add(event);
+    pendingById.put(event.getEntryID(), event);
+    if (!scheduled) {
+      scheduled = true;
+      executor.execute(deliver);
+    }
+  }
+}
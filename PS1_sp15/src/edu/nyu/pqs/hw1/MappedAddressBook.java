@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * MappedAddressBook is a read-only view of an AddressBook file written by
+ * AddressBook.saveAddressBookToFile(). The file is memory-mapped when it is opened and
+ * nothing is decoded up front, so opening a book takes the same time however many entries
+ * it has, and processes reading the same file share its pages through the page cache.
+ * Entries are decoded only when they are asked for, using the offset table at the end of
+ * the file to find an entry by ID with a binary search.
+ * <p>
+ * The AddressBookEntry objects returned are fresh copies: changing them does not change
+ * the file. A MappedAddressBook can be read by several threads at once.
+ * @author Vangie Shue
+ * @see AddressBook
+ * @see AddressBookFile
+ */
+public class MappedAddressBook implements Iterable<AddressBookEntry> {
+
+  private final MappedByteBuffer buffer;
+  private final int count;
+  private final int tableOffset;
+
+  private MappedAddressBook(MappedByteBuffer buffer, int count, int tableOffset) {
+    this.buffer = buffer;
+    this.count = count;
+    this.tableOffset = tableOffset;
+  }
+
+  /**
+   * Maps the AddressBook file at path. Only the header and the position of the offset
+   * table are read.
+   * @param path the file to open.
+   * @return MappedAddressBook over the file.
+   * @throws IOException if the file cannot be read, is larger than 2 GB or is not an
+   *     AddressBook file with an offset table (format version 2 or later).
+   */
+  public static MappedAddressBook open(String path) throws IOException {
+    FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Address book file too large to map: " + path);
+      }
+      if (size < 20) {
+        throw new IOException("Not an address book file: " + path);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (buffer.getInt(0) != AddressBookFile.MAGIC) {
+        throw new IOException("Not an address book file: " + path);
+      }
+      int version = buffer.getInt(4);
+      if (version < 2 || version > AddressBookFile.VERSION) {
+        throw new IOException("Address book file version " + version + " cannot be mapped.");
+      }
+      int count = buffer.getInt(8);
+      long tableOffset = buffer.getLong((int) size - 8);
+      if (tableOffset < 12 || tableOffset + (long) count * AddressBookFile.TABLE_ROW_SIZE
+          != size - 8) {
+        throw new IOException("Corrupt address book file: bad offset table.");
+      }
+      return new MappedAddressBook(buffer, count, (int) tableOffset);
+    } finally {
+      //The mapping stays valid after the channel is closed.
+      channel.close();
+    }
+  }
+
+  /**
+   * Returns the number of entries in the file.
+   * @return int the number of entries.
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Decodes the entry with the given ID.
+   * @param id the unique ID of the entry.
+   * @return AddressBookEntry a copy of the entry, or null if there is no entry with that ID.
+   * @throws IOException if the entry is corrupt and cannot be decoded.
+   */
+  public AddressBookEntry getEntry(int id) throws IOException {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midId = idAt(mid);
+      if (midId < id) {
+        low = mid + 1;
+      } else if (midId > id) {
+        high = mid - 1;
+      } else {
+        return getEntryAt(mid);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Decodes the entry at the given position in ID order.
+   * @param index the position of the entry, from 0 to size() - 1.
+   * @return AddressBookEntry a copy of the entry.
+   * @throws IndexOutOfBoundsException if index is out of range.
+   * @throws IOException if the entry is corrupt and cannot be decoded.
+   */
+  public AddressBookEntry getEntryAt(int index) throws IOException {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("No entry at index " + index);
+    }
+    long offset = buffer.getLong(tableOffset + index * AddressBookFile.TABLE_ROW_SIZE + 4);
+    return decode(offset);
+  }
+
+  /**
+   * Lazily decodes the entries in ID order, one per call to next(). A corrupt entry makes
+   * next() throw an IllegalStateException caused by the IOException of getEntryAt().
+   * @return Iterator over copies of the entries.
+   */
+  @Override
+  public Iterator<AddressBookEntry> iterator() {
+    return new Iterator<AddressBookEntry>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < count;
+      }
+
+      @Override
+      public AddressBookEntry next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        try {
+          return getEntryAt(index++);
+        } catch (IOException ex) {
+          throw new IllegalStateException(ex.getMessage(), ex);
+        }
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("MappedAddressBook is read-only.");
+      }
+    };
+  }
+
+  /**
+   * Decodes every entry and checks it against the query. There are no indexes in the file,
+   * so this is a full scan; load the file with AddressBook.readAddressBookFromFile() for
+   * repeated searches.
+   * @param query the EntryQuery to run.
+   * @return TreeSet<Entry> copies of all entries that matched the query.
+   * @throws IllegalStateException if an entry is corrupt and cannot be decoded.
+   */
+  public TreeSet<AddressBookEntry> searchEntries(EntryQuery query) {
+    TreeSet<AddressBookEntry> matches = new TreeSet<AddressBookEntry>();
+    for (AddressBookEntry e : this) {
+      if (query.matches(e)) {
+        matches.add(e);
+      }
+    }
+    return matches;
+  }
+
+  /*
+   * Reads the ID in row index of the offset table.
+   */
+  private int idAt(int index) {
+    return buffer.getInt(tableOffset + index * AddressBookFile.TABLE_ROW_SIZE);
+  }
+
+  /*
+   * Decodes the entry starting at offset. Works on a duplicate of the mapped buffer so
+   * that concurrent readers do not share a position. Lengths and offsets come from the
+   * file, so they are checked against the entry area before they are used.
+   */
+  private AddressBookEntry decode(long offset) throws IOException {
+    if (offset < 12 || offset > tableOffset - 4) {
+      throw new IOException("Corrupt address book file: bad entry offset " + offset);
+    }
+    ByteBuffer in = buffer.duplicate();
+    in.limit(tableOffset);
+    in.position((int) offset);
+    AddressBookEntry e = new AddressBookEntry(in.getInt());
+    e.setName(readString(in));
+    e.setPostalAddress(readString(in));
+    e.setPhoneNumber(readString(in));
+    String email = readString(in);
+    e.setNote(readString(in));
+    try {
+      e.setEmailAddress(email);
+    } catch (Exception ex) {
+      throw new IOException("Corrupt address book file: invalid email address " + email
+          + " in the entry at offset " + offset);
+    }
+    return e;
+  }
+
+  /*
+   * Reads a length-prefixed UTF-8 String at the current position of in.
+   */
+  private static String readString(ByteBuffer in) throws IOException {
+    int at = in.position();
+    int length = (in.remaining() < 4) ? -1 : in.getInt();
+    if (length < 0 || length > in.remaining()) {
+      throw new IOException("Corrupt address book file: bad string length at offset " + at);
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * NGramIndex maps every three character substring (trigram) of an entry's fields to the
+ * entries containing it. Any String of length three or more that occurs in a field also has
+ * all of its trigrams in that field, so intersecting the postings of the query trigrams gives
+ * a small superset of the entries that hasFieldMatch() would accept. Trigrams are case
+ * sensitive and never span two fields, matching the semantics of hasFieldMatch().
+ * @author Vangie Shue
+ * @see AddressBook
+ * @see AddressBookEntry#hasFieldMatch(String)
+ */
+class NGramIndex implements EntryIndex {
+
+  /**
+   * Queries shorter than this cannot be narrowed down by the index.
+   */
+  static final int GRAM_LENGTH = 3;
+
+  private final Map<String, TreeSet<AddressBookEntry>> postings =
+      new HashMap<String, TreeSet<AddressBookEntry>>();
+
+  @Override
+  public void add(AddressBookEntry e) {
+    for (String gram : entryGrams(e)) {
+      addPosting(gram, e);
+    }
+  }
+
+  @Override
+  public void remove(AddressBookEntry e) {
+    for (String gram : entryGrams(e)) {
+      removePosting(gram, e);
+    }
+  }
+
+  /**
+   * Adds the entry under the trigrams that are new to the field and removes it from those
+   * that left it, unless another field of the entry still contains them.
+   */
+  @Override
+  public void update(AddressBookEntry e, EntryField field, String oldValue) {
+    Set<String> oldGrams = grams(oldValue, new HashSet<String>());
+    for (String gram : grams(field.getValue(e), new HashSet<String>())) {
+      if (!oldGrams.remove(gram)) {
+        addPosting(gram, e);
+      }
+    }
+    for (String gram : oldGrams) {
+      boolean kept = false;
+      for (EntryField other : EntryField.values()) {
+        if (other != field && other.getValue(e).contains(gram)) {
+          kept = true;
+          break;
+        }
+      }
+      if (!kept) {
+        removePosting(gram, e);
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    postings.clear();
+  }
+
+  /**
+   * Lazily returns the entries that contain every trigram of the String in one of their
+   * fields. The shortest postings list is walked in ID order and each entry is checked
+   * against the other lists as it is reached. The result still has to be checked with
+   * hasFieldMatch(), since the trigrams may be spread over different fields or appear in
+   * a different order.
+   * @param s the String to search for, at least GRAM_LENGTH characters long.
+   * @return Iterator over the candidate entries in ID order.
+   */
+  Iterator<AddressBookEntry> candidates(String s) {
+    final List<TreeSet<AddressBookEntry>> lists = new ArrayList<TreeSet<AddressBookEntry>>();
+    TreeSet<AddressBookEntry> shortest = null;
+    for (String gram : grams(s, new HashSet<String>())) {
+      TreeSet<AddressBookEntry> list = postings.get(gram);
+      if (list == null) {
+        return Collections.<AddressBookEntry>emptyIterator();
+      }
+      lists.add(list);
+      if (shortest == null || list.size() < shortest.size()) {
+        shortest = list;
+      }
+    }
+    if (shortest == null) {
+      return Collections.<AddressBookEntry>emptyIterator();
+    }
+    lists.remove(shortest);
+    return new FilteringIterator(shortest.iterator()) {
+      @Override
+      boolean accept(AddressBookEntry e) {
+        for (TreeSet<AddressBookEntry> list : lists) {
+          if (!list.contains(e)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  private void addPosting(String gram, AddressBookEntry e) {
+    TreeSet<AddressBookEntry> list = postings.get(gram);
+    if (list == null) {
+      list = new TreeSet<AddressBookEntry>();
+      postings.put(gram, list);
+    }
+    list.add(e);
+  }
+
+  private void removePosting(String gram, AddressBookEntry e) {
+    TreeSet<AddressBookEntry> list = postings.get(gram);
+    if (list != null) {
+      list.remove(e);
+      if (list.isEmpty()) {
+        postings.remove(gram);
+      }
+    }
+  }
+
+  /*
+   * Collects the distinct trigrams of all five fields of the entry.
+   */
+  private static Set<String> entryGrams(AddressBookEntry e) {
+    Set<String> grams = new HashSet<String>();
+    for (EntryField field : EntryField.values()) {
+      grams(field.getValue(e), grams);
+    }
+    return grams;
+  }
+
+  /*
+   * Adds every trigram of the String to grams.
+   */
+  private static Set<String> grams(String s, Set<String> grams) {
+    for (int i = 0; i + GRAM_LENGTH <= s.length(); i++) {
+      grams.add(s.substring(i, i + GRAM_LENGTH));
+    }
+    return grams;
+  }
+}
@@ -0,0 +1,555 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * OffHeapEntryStore keeps the fields of its entries in direct ByteBuffers outside the Java
+ * heap. The heap only holds one int ID and one long address per entry plus the IntIntMap
+ * from ID to row, so the garbage collector has almost nothing to trace however many
+ * contacts are stored, and old generation collections stay short as the store grows.
+ * <p>
+ * Records are appended to 1MB slabs in the same layout AddressBookFile uses for an entry:
+ * the ID followed by each EntryField as a length-prefixed UTF-8 string. Replacing or
+ * removing an entry leaves its old record behind as garbage; once the garbage outweighs
+ * the live records, the records of mostly empty slabs are copied out and those slabs are
+ * dropped. Views returned by get() and the iterator decode a field each time a getter is
+ * called.
+ * <p>
+ * The store keeps a trigram index of its entries on the heap, holding entry IDs rather
+ * than objects, so searchEntries() only decodes the records that contain every trigram of
+ * the query text, as AddressBook narrows its searches. Regex queries and queries shorter
+ * than a trigram still scan every record.
+ * <p>
+ * A store is a standalone backend, not one AddressBook can be switched to: AddressBook
+ * hands out its entries as mutable AddressBookEntry objects that report their changes to
+ * the book, which a record in a slab cannot do. To keep a large, read-mostly book off the
+ * heap, load its file straight into a store with readAddressBookFromFile(), which never
+ * builds the AddressBookEntry objects, and search and save it through the store.
+ * @author Vangie Shue
+ * @see EntryStore
+ * @see AddressBookFile
+ */
+public class OffHeapEntryStore extends AbstractEntryStore {
+
+  static final int SLAB_SIZE = 1 << 20;
+
+  private static final int FIELD_COUNT = EntryField.values().length;
+
+  //Slabs by index; a dropped slab leaves a null so that addresses stay valid.
+  private final List<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+  //Bytes of live records in each slab.
+  private int[] slabLiveBytes = new int[16];
+  //Index of the slab records are appended to, or -1 before the first record.
+  private int currentSlab = -1;
+  private long liveBytes = 0;
+  private long garbageBytes = 0;
+
+  private int size = 0;
+  private int[] ids = new int[16];
+  //Slab index in the high 32 bits and offset in the low 32 bits of each record.
+  private long[] addresses = new long[16];
+  private final IntIntMap rows = new IntIntMap();
+  private final GramIndex index = new GramIndex();
+
+  /**
+   * Reads the AddressBook file at path straight into a new store, one entry at a time, so
+   * the heap never holds more than the record being copied.
+   * @param path the file to read, saved by AddressBook.saveAddressBookToFile() or
+   *     AddressBook.saveCompressedAddressBookToFile().
+   * @return OffHeapEntryStore with the entries of the file.
+   * @throws IOException if the file cannot be read, is corrupt, or is a Java serialized
+   *     AddressBook.
+   */
+  public static OffHeapEntryStore readAddressBookFromFile(String path) throws IOException {
+    OffHeapEntryStore store = new OffHeapEntryStore();
+    AddressBookFile.readEntries(path, store);
+    return store;
+  }
+
+  /**
+   * Creates a store holding copies of all entries of the AddressBook.
+   * @param book the AddressBook to copy.
+   * @return OffHeapEntryStore with the entries of the book.
+   */
+  public static OffHeapEntryStore fromAddressBook(AddressBook book) {
+    OffHeapEntryStore store = new OffHeapEntryStore();
+    for (AddressBookEntry e : book.getEntries()) {
+      store.add(e);
+    }
+    return store;
+  }
+
+  @Override
+  public void add(EntryView e) {
+    int id = e.getEntryID();
+    if (rows.get(id) != IntIntMap.MISSING) {
+      index.remove(id, readFields(id));
+    }
+    String[] values = new String[FIELD_COUNT];
+    byte[][] fields = new byte[FIELD_COUNT][];
+    int length = 4;
+    for (EntryField field : EntryField.values()) {
+      values[field.ordinal()] = field.getValue(e);
+      byte[] bytes = values[field.ordinal()].getBytes(StandardCharsets.UTF_8);
+      fields[field.ordinal()] = bytes;
+      length += 4 + bytes.length;
+    }
+    long address = allocate(length);
+    ByteBuffer slab = slabs.get(slabOf(address));
+    slab.position(offsetOf(address));
+    slab.putInt(id);
+    for (byte[] bytes : fields) {
+      slab.putInt(bytes.length);
+      slab.put(bytes);
+    }
+
+    int row = rows.get(id);
+    if (row == IntIntMap.MISSING) {
+      row = size++;
+      if (row == ids.length) {
+        ids = Arrays.copyOf(ids, row * 2);
+        addresses = Arrays.copyOf(addresses, row * 2);
+      }
+      ids[row] = id;
+      rows.put(id, row);
+    } else {
+      free(addresses[row]);
+    }
+    addresses[row] = address;
+    index.add(id, values);
+    maybeCompact();
+  }
+
+  @Override
+  public boolean remove(int id) {
+    if (rows.get(id) == IntIntMap.MISSING) {
+      return false;
+    }
+    index.remove(id, readFields(id));
+    int row = rows.remove(id);
+    free(addresses[row]);
+    int last = --size;
+    if (row != last) {
+      ids[row] = ids[last];
+      addresses[row] = addresses[last];
+      rows.put(ids[row], row);
+    }
+    maybeCompact();
+    return true;
+  }
+
+  @Override
+  public EntryView get(int id) {
+    return (rows.get(id) == IntIntMap.MISSING) ? null : new RecordView(id);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns views of all stored entries matching the query. Unless the query is a regex or
+   * its text is shorter than a trigram, only the entries the trigram index lists under every
+   * trigram of the text are decoded and checked.
+   * @param query the EntryQuery to run.
+   * @return List of views of the matching entries, in ID order.
+   */
+  @Override
+  public List<EntryView> searchEntries(EntryQuery query) {
+    String required = query.getRequiredText();
+    if (required == null || required.length() < NGramIndex.GRAM_LENGTH) {
+      return super.searchEntries(query);
+    }
+    List<EntryView> matches = new ArrayList<EntryView>();
+    for (int id : index.candidates(required)) {
+      EntryView e = new RecordView(id);
+      if (query.matches(e)) {
+        matches.add(e);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Returns the number of off-heap bytes held by the store, including garbage left by
+   * replaced and removed entries that has not been compacted yet.
+   * @return long the number of bytes allocated.
+   */
+  public long allocatedBytes() {
+    long total = 0;
+    for (ByteBuffer slab : slabs) {
+      if (slab != null) {
+        total += slab.capacity();
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Returns the number of off-heap bytes used by the records of stored entries.
+   * @return long the number of live bytes.
+   */
+  public long liveBytes() {
+    return liveBytes;
+  }
+
+  /**
+   * Copies the records out of slabs that are less than half full and drops those slabs.
+   * This runs automatically once the garbage outweighs the live records.
+   */
+  public void compact() {
+    boolean[] victims = new boolean[slabs.size()];
+    boolean any = false;
+    for (int i = 0; i < victims.length; i++) {
+      ByteBuffer slab = slabs.get(i);
+      if (slab != null && i != currentSlab && slabLiveBytes[i] * 2 < slab.capacity()) {
+        victims[i] = true;
+        any = true;
+      }
+    }
+    if (!any) {
+      return;
+    }
+    for (int row = 0; row < size; row++) {
+      long address = addresses[row];
+      if (victims[slabOf(address)]) {
+        addresses[row] = relocate(address);
+      }
+    }
+    for (int i = 0; i < victims.length; i++) {
+      if (victims[i]) {
+        //The live records now also count in the slabs they were copied to.
+        garbageBytes -= slabs.get(i).limit() - slabLiveBytes[i];
+        liveBytes -= slabLiveBytes[i];
+        slabLiveBytes[i] = 0;
+        slabs.set(i, null);
+      }
+    }
+  }
+
+  /**
+   * Iterates over views of the stored entries in storage order, which is not ID order.
+   * The store must not be changed while the iterator is in use.
+   * @return Iterator over views of the entries.
+   */
+  @Override
+  public Iterator<EntryView> iterator() {
+    return new Iterator<EntryView>() {
+      private int row = 0;
+
+      @Override
+      public boolean hasNext() {
+        return row < size;
+      }
+
+      @Override
+      public EntryView next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return new RecordView(ids[row++]);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("Remove entries through the store.");
+      }
+    };
+  }
+
+  private static int slabOf(long address) {
+    return (int) (address >>> 32);
+  }
+
+  private static int offsetOf(long address) {
+    return (int) address;
+  }
+
+  /*
+   * Reserves length bytes and returns their address. Records larger than a slab get a slab
+   * of their own.
+   */
+  private long allocate(int length) {
+    int slabIndex;
+    int offset;
+    if (length > SLAB_SIZE) {
+      slabIndex = newSlab(length);
+      offset = 0;
+    } else {
+      if (currentSlab < 0 || slabs.get(currentSlab).capacity() - position(currentSlab) < length) {
+        currentSlab = newSlab(SLAB_SIZE);
+      }
+      slabIndex = currentSlab;
+      offset = position(currentSlab);
+    }
+    ByteBuffer slab = slabs.get(slabIndex);
+    slab.limit(offset + length);
+    slabLiveBytes[slabIndex] += length;
+    liveBytes += length;
+    return ((long) slabIndex << 32) | offset;
+  }
+
+  /*
+   * Returns the end of the used part of a slab, which allocate() keeps in its limit.
+   */
+  private int position(int slabIndex) {
+    return slabs.get(slabIndex).limit();
+  }
+
+  private int newSlab(int capacity) {
+    ByteBuffer slab = ByteBuffer.allocateDirect(capacity);
+    slab.limit(0);
+    int index = slabs.indexOf(null);
+    if (index < 0) {
+      index = slabs.size();
+      slabs.add(slab);
+      if (index == slabLiveBytes.length) {
+        slabLiveBytes = Arrays.copyOf(slabLiveBytes, index * 2);
+      }
+    } else {
+      slabs.set(index, slab);
+    }
+    return index;
+  }
+
+  /*
+   * Marks a record as garbage. A slab left without live records is dropped at once.
+   */
+  private void free(long address) {
+    int slabIndex = slabOf(address);
+    int length = recordLength(address);
+    slabLiveBytes[slabIndex] -= length;
+    liveBytes -= length;
+    if (slabLiveBytes[slabIndex] == 0 && slabIndex != currentSlab) {
+      garbageBytes -= slabs.get(slabIndex).limit() - length;
+      slabs.set(slabIndex, null);
+    } else {
+      garbageBytes += length;
+    }
+  }
+
+  private void maybeCompact() {
+    if (garbageBytes > SLAB_SIZE && garbageBytes > liveBytes) {
+      compact();
+    }
+  }
+
+  /*
+   * Copies a record to newly allocated space, leaving the old copy to be dropped with its
+   * slab.
+   */
+  private long relocate(long address) {
+    int length = recordLength(address);
+    ByteBuffer from = slabs.get(slabOf(address)).duplicate();
+    from.limit(offsetOf(address) + length);
+    from.position(offsetOf(address));
+    long target = allocate(length);
+    ByteBuffer to = slabs.get(slabOf(target));
+    to.position(offsetOf(target));
+    to.put(from);
+    return target;
+  }
+
+  private int recordLength(long address) {
+    ByteBuffer slab = slabs.get(slabOf(address));
+    int offset = offsetOf(address) + 4;
+    for (int i = 0; i < FIELD_COUNT; i++) {
+      offset += 4 + slab.getInt(offset);
+    }
+    return offset - offsetOf(address);
+  }
+
+  /*
+   * Decodes all fields of the record of the entry with the given ID, in EntryField order.
+   */
+  private String[] readFields(int id) {
+    String[] values = new String[FIELD_COUNT];
+    for (EntryField field : EntryField.values()) {
+      values[field.ordinal()] = readField(id, field);
+    }
+    return values;
+  }
+
+  /*
+   * Decodes one field of the record of the entry with the given ID.
+   */
+  private String readField(int id, EntryField field) {
+    int row = rows.get(id);
+    if (row == IntIntMap.MISSING) {
+      throw new IllegalStateException("Entry " + id + " is no longer in the store.");
+    }
+    long address = addresses[row];
+    ByteBuffer slab = slabs.get(slabOf(address));
+    int offset = offsetOf(address) + 4;
+    for (int i = 0; i < field.ordinal(); i++) {
+      offset += 4 + slab.getInt(offset);
+    }
+    byte[] bytes = new byte[slab.getInt(offset)];
+    slab.position(offset + 4);
+    slab.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * A flyweight view of one stored entry.
+   */
+  private class RecordView implements EntryView {
+    private final int id;
+
+    RecordView(int id) {
+      this.id = id;
+    }
+    @Override
+    public int getEntryID() {
+      return id;
+    }
+    @Override
+    public String getName() {
+      return readField(id, EntryField.NAME);
+    }
+    @Override
+    public String getPostalAddress() {
+      return readField(id, EntryField.POSTAL_ADDRESS);
+    }
+    @Override
+    public String getPhoneNumber() {
+      return readField(id, EntryField.PHONE_NUMBER);
+    }
+    @Override
+    public String getEmailAddress() {
+      return readField(id, EntryField.EMAIL_ADDRESS);
+    }
+    @Override
+    public String getNote() {
+      return readField(id, EntryField.NOTE);
+    }
+  }
+
+  /**
+   * Maps every trigram of the stored fields to the sorted IDs of the entries containing it.
+   * Like NGramIndex, trigrams are case sensitive and never span two fields.
+   */
+  private static class GramIndex {
+    private final Map<String, Postings> postings = new HashMap<String, Postings>();
+
+    void add(int id, String[] values) {
+      for (String gram : grams(values)) {
+        Postings list = postings.get(gram);
+        if (list == null) {
+          list = new Postings();
+          postings.put(gram, list);
+        }
+        list.add(id);
+      }
+    }
+
+    void remove(int id, String[] values) {
+      for (String gram : grams(values)) {
+        Postings list = postings.get(gram);
+        if (list != null && list.remove(id) && list.size == 0) {
+          postings.remove(gram);
+        }
+      }
+    }
+
+    /*
+     * Returns, in ascending order, the IDs listed under every trigram of s. The entries
+     * still have to be checked against the query.
+     */
+    int[] candidates(String s) {
+      List<Postings> lists = new ArrayList<Postings>();
+      Postings shortest = null;
+      for (String gram : grams(new String[] {s})) {
+        Postings list = postings.get(gram);
+        if (list == null) {
+          return new int[0];
+        }
+        lists.add(list);
+        if (shortest == null || list.size < shortest.size) {
+          shortest = list;
+        }
+      }
+      lists.remove(shortest);
+      int[] found = new int[shortest.size];
+      int count = 0;
+      for (int i = 0; i < shortest.size; i++) {
+        int id = shortest.ids[i];
+        boolean all = true;
+        for (Postings list : lists) {
+          if (!list.contains(id)) {
+            all = false;
+            break;
+          }
+        }
+        if (all) {
+          found[count++] = id;
+        }
+      }
+      return Arrays.copyOf(found, count);
+    }
+
+    private static Set<String> grams(String[] values) {
+      Set<String> grams = new HashSet<String>();
+      for (String s : values) {
+        for (int i = 0; i + NGramIndex.GRAM_LENGTH <= s.length(); i++) {
+          grams.add(s.substring(i, i + NGramIndex.GRAM_LENGTH));
+        }
+      }
+      return grams;
+    }
+  }
+
+  /**
+   * A sorted set of entry IDs in one int[]. Files list their entries in ID order, so
+   * loading one only ever appends.
+   */
+  private static class Postings {
+    private int[] ids = new int[4];
+    private int size = 0;
+
+    void add(int id) {
+      int at = (size == 0 || ids[size - 1] < id)
+          ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+      if (at >= 0) {
+        return;
+      }
+      at = -(at + 1);
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      System.arraycopy(ids, at, ids, at + 1, size - at);
+      ids[at] = id;
+      size++;
+    }
+
+    boolean remove(int id) {
+      int at = Arrays.binarySearch(ids, 0, size, id);
+      if (at < 0) {
+        return false;
+      }
+      System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+      size--;
+      return true;
+    }
+
+    boolean contains(int id) {
+      return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelSearch runs an EntryQuery over an array of entries with fork/join: the array is
+ * split in halves until the pieces are small enough to scan directly, and the matches of
+ * the pieces are joined back together in order. It is meant for queries that no index can
+ * answer, such as an arbitrary regex over the notes of a large book.
+ * @author Vangie Shue
+ * @see AddressBook#parallelSearchEntries(EntryQuery)
+ * @see ConcurrentAddressBook#parallelSearchEntries(EntryQuery)
+ */
+class ParallelSearch extends RecursiveTask<List<AddressBookEntry>> {
+
+  //RecursiveTask is Serializable, but search tasks are never serialized.
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Books with fewer entries than this are searched sequentially, since splitting the work
+   * would cost more than it saves.
+   */
+  static final int PARALLEL_THRESHOLD = 10000;
+  //The smallest piece of the array that is split further.
+  private static final int MIN_CHUNK = 2048;
+  //Shared by all searches; its worker threads are daemon threads.
+  private static final ForkJoinPool POOL = new ForkJoinPool();
+
+  private final AddressBookEntry[] entries;
+  private final int from;
+  private final int to;
+  private final EntryQuery query;
+  private final int chunk;
+
+  private ParallelSearch(AddressBookEntry[] entries, int from, int to, EntryQuery query,
+      int chunk) {
+    this.entries = entries;
+    this.from = from;
+    this.to = to;
+    this.query = query;
+    this.chunk = chunk;
+  }
+
+  /**
+   * Searches the entries in parallel, or sequentially if there are fewer than
+   * PARALLEL_THRESHOLD of them.
+   * @param entries the entries to search, in ID order.
+   * @param query the EntryQuery to run.
+   * @return TreeSet of the matching entries.
+   */
+  static TreeSet<AddressBookEntry> search(Collection<AddressBookEntry> entries,
+      EntryQuery query) {
+    AddressBookEntry[] array = entries.toArray(new AddressBookEntry[entries.size()]);
+    //Aim for a few pieces per worker so that uneven pieces even out.
+    int chunk = Math.max(MIN_CHUNK, array.length / (POOL.getParallelism() * 4));
+    ParallelSearch task = new ParallelSearch(array, 0, array.length, query,
+        array.length < PARALLEL_THRESHOLD ? array.length : chunk);
+    List<AddressBookEntry> matches = (array.length < PARALLEL_THRESHOLD)
+        ? task.compute() : POOL.invoke(task);
+    return new TreeSet<AddressBookEntry>(matches);
+  }
+
+  @Override
+  protected List<AddressBookEntry> compute() {
+    if (to - from <= chunk) {
+      List<AddressBookEntry> matches = new ArrayList<AddressBookEntry>();
+      for (int i = from; i < to; i++) {
+        if (query.matches(entries[i])) {
+          matches.add(entries[i]);
+        }
+      }
+      return matches;
+    }
+    int mid = (from + to) >>> 1;
+    ParallelSearch left = new ParallelSearch(entries, from, mid, query, chunk);
+    ParallelSearch right = new ParallelSearch(entries, mid, to, query, chunk);
+    left.fork();
+    List<AddressBookEntry> matches = right.compute();
+    List<AddressBookEntry> leftMatches = left.join();
+    leftMatches.addAll(matches);
+    return leftMatches;
+  }
+}
@@ -4,19 +4,38 @@
 
 package edu.nyu.pqs.hw1;
 import java.io.Serializable;
-import java.util.Arrays;
 
 /**
  * PhoneNumber is a protected class for representing phone numbers as needed by AddressBookEntry.
  * PhoneNumber is represented as a String of digits or chars given by the acceptedChars field.
  * We consider any combination of accepted characters as a valid phoneNumber.
+ * Alongside the number as entered, a canonical form holding only the leading "+" and the
+ * digits of the dialable part is kept for cheap comparisons between numbers. It is only
+ * worked out the first time it is asked for after the number changes.
  * @author Vangie
  * @see AddressBookEntry
  */
 class PhoneNumber implements Serializable {
-  private String phoneNumber;
+  //Pinned to the value of the original class so that previously saved books still load.
+  private static final long serialVersionUID = -29479578167658053L;
+
+  //Volatile so that changes are seen by threads searching a ConcurrentAddressBook.
+  private volatile String phoneNumber;
+  //The number the canonical form was last derived from, and that form, as one pair so that a
+  //reader never sees the form of another number. Not saved; it is rebuilt on first use.
+  private transient volatile String[] canonicalNumber;
   //Since Apple considers the following valid in a phone number, we will too.
-  private static final Character[] acceptedChars = {';',',','+','*','#'};
+  private static final char[] acceptedChars = {';',',','+','*','#'};
+  //Lookup table over ASCII of the characters kept in a phone number: digits and acceptedChars.
+  private static final boolean[] ACCEPTED = new boolean[128];
+  static {
+    for (char c = '0'; c <= '9'; c++) {
+      ACCEPTED[c] = true;
+    }
+    for (char c : acceptedChars) {
+      ACCEPTED[c] = true;
+    }
+  }
 
   PhoneNumber() {
     phoneNumber = "";
@@ -45,23 +64,79 @@ class PhoneNumber implements Serializable {
   }
 
   /**
-   * This method iterates through the input String and removes any invalid characters.
+   * Returns the canonical form of the phone number, see canonicalize().
+   * @return String the canonical phone number.
+   */
+  String getCanonicalNumber() {
+    String number = phoneNumber;
+    String[] canonical = canonicalNumber;
+    if (canonical == null || canonical[0] != number) {
+      //Derived on first use after a change, so that setting a number costs nothing extra.
+      canonical = new String[] {number, canonicalize(number)};
+      canonicalNumber = canonical;
+    }
+    return canonical[1];
+  }
+
+  /**
+   * This method copies the input String in a single pass, leaving out any invalid characters.
+   * ASCII characters are checked with a lookup table; other characters are kept only if they
+   * are digits. The input String itself is returned if it has no invalid characters.
    * @param s the String in which to set the phoneNumber field to.
    * @return String a valid phoneNumber String.
    */
-  private static String convertToPhoneNumber(String s) {
-    StringBuilder phoneNumber = new StringBuilder(s);
-    int index = 0;
-    Character temp;
-    while (index < phoneNumber.length()) {
-      temp = phoneNumber.charAt(index);
-      if (!Character.isDigit(temp) && !Arrays.asList(acceptedChars).contains(temp)) {
-        phoneNumber.deleteCharAt(index);
-      } else {
-        index++;
+  static String convertToPhoneNumber(String s) {
+    int length = s.length();
+    char[] kept = null;
+    int count = 0;
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (isAccepted(c)) {
+        if (kept != null) {
+          kept[count] = c;
+        }
+        count++;
+      } else if (kept == null) {
+        //First invalid character: copy what was kept so far and continue copying.
+        kept = new char[length];
+        s.getChars(0, i, kept, 0);
       }
     }
-    return phoneNumber.toString();
+    return (kept == null) ? s : new String(kept, 0, count);
+  }
+
+  /**
+   * Reduces a phone number to an E.164-like canonical form: a "+" if the number starts with
+   * one, followed by the ASCII digits of the number up to the first pause (",") or wait
+   * (";"). Other accepted characters are dropped, so "+1 (212) 555-0100,,22" and
+   * "+12125550100" have the same canonical form.
+   * @param s the phone number, valid or not.
+   * @return String the canonical form, possibly empty.
+   */
+  static String canonicalize(String s) {
+    int length = s.length();
+    char[] digits = new char[length];
+    int count = 0;
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c == ',' || c == ';') {
+        break;
+      }
+      int digit = Character.digit(c, 10);
+      if (digit >= 0) {
+        digits[count++] = (char) ('0' + digit);
+      } else if (c == '+' && count == 0) {
+        digits[count++] = '+';
+      }
+    }
+    return new String(digits, 0, count);
+  }
+
+  /*
+   * Returns true if the character may appear in a phone number.
+   */
+  private static boolean isAccepted(char c) {
+    return (c < 128) ? ACCEPTED[c] : Character.isDigit(c);
   }
 
 }
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * QueryCache keeps the results of recent AddressBook.searchEntries() calls, so that
+ * repeated searches (common surnames, the same typeahead text) do not scan the book again.
+ * An AddressBook given a cache with setQueryCache() looks every search up in it first.
+ * <p>
+ * The cache is bounded by weight: a cached result weighs the number of entries in it plus
+ * one, and the least recently used results are evicted once the total weight exceeds the
+ * maximum. Results heavier than the maximum are not cached at all. Every change to the
+ * AddressBook (adding or removing an entry, or changing a field) increments the book's
+ * version, and a lookup at a newer version empties the cache, so a cached result is never
+ * stale. A cache must only be used by one AddressBook at a time.
+ * @author Vangie Shue
+ * @see AddressBook#setQueryCache(QueryCache)
+ */
+public class QueryCache {
+
+  private final int maxWeight;
+  private final LinkedHashMap<EntryQuery, TreeSet<AddressBookEntry>> results =
+      new LinkedHashMap<EntryQuery, TreeSet<AddressBookEntry>>(16, 0.75f, true);
+  private long weight = 0;
+  private long version = -1;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long invalidations = 0;
+
+  /**
+   * Creates a cache holding results of up to maxWeight entries in total.
+   * @param maxWeight the total weight of the cached results, at least 1.
+   * @throws IllegalArgumentException if maxWeight is less than 1.
+   */
+  public QueryCache(int maxWeight) {
+    if (maxWeight < 1) {
+      throw new IllegalArgumentException("maxWeight must be at least 1.");
+    }
+    this.maxWeight = maxWeight;
+  }
+
+  /**
+   * Returns a copy of the cached result of the query if it was computed at this version of
+   * the book.
+   * @param query the query to look up.
+   * @param bookVersion the current version of the AddressBook.
+   * @return TreeSet<Entry> a copy of the result, or null if it is not cached.
+   */
+  synchronized TreeSet<AddressBookEntry> get(EntryQuery query, long bookVersion) {
+    checkVersion(bookVersion);
+    TreeSet<AddressBookEntry> result = results.get(query);
+    if (result == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return new TreeSet<AddressBookEntry>(result);
+  }
+
+  /**
+   * Caches a copy of the result of the query, evicting the least recently used results
+   * until it fits.
+   * @param query the query that was run.
+   * @param bookVersion the version of the AddressBook the query was run against.
+   * @param result the result of the query.
+   */
+  synchronized void put(EntryQuery query, long bookVersion, TreeSet<AddressBookEntry> result) {
+    checkVersion(bookVersion);
+    long resultWeight = result.size() + 1L;
+    if (resultWeight > maxWeight) {
+      return;
+    }
+    TreeSet<AddressBookEntry> previous =
+        results.put(query, new TreeSet<AddressBookEntry>(result));
+    if (previous != null) {
+      weight -= previous.size() + 1L;
+    }
+    weight += resultWeight;
+    Iterator<Map.Entry<EntryQuery, TreeSet<AddressBookEntry>>> eldest =
+        results.entrySet().iterator();
+    while (weight > maxWeight) {
+      weight -= eldest.next().getValue().size() + 1L;
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Removes every cached result. The statistics are kept.
+   */
+  public synchronized void clear() {
+    results.clear();
+    weight = 0;
+  }
+
+  /*
+   * Drops results computed at an older version of the book.
+   */
+  private void checkVersion(long bookVersion) {
+    if (bookVersion != version) {
+      if (!results.isEmpty()) {
+        invalidations++;
+        clear();
+      }
+      version = bookVersion;
+    }
+  }
+
+  public int getMaxWeight() {
+    return maxWeight;
+  }
+
+  /**
+   * Returns the number of cached results.
+   * @return int the number of queries whose results are cached.
+   */
+  public synchronized int size() {
+    return results.size();
+  }
+
+  /**
+   * Returns the total weight of the cached results.
+   * @return long the number of cached entries plus the number of cached results.
+   */
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Returns how many results were evicted to make room for newer ones.
+   * @return long the number of evicted results.
+   */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * Returns how many times the cache was emptied because the AddressBook had changed.
+   * @return long the number of invalidations.
+   */
+  public synchronized long getInvalidationCount() {
+    return invalidations;
+  }
+
+  /**
+   * Returns the fraction of lookups that were answered from the cache.
+   * @return double the hit rate from 0 to 1, or 0 before the first lookup.
+   */
+  public synchronized double getHitRate() {
+    long lookups = hits + misses;
+    return (lookups == 0) ? 0 : (double) hits / lookups;
+  }
+}
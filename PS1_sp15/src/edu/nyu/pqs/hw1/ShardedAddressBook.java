@@ -0,0 +1,541 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ShardedAddressBook spreads its entries over several independent AddressBooks, the
+ * shards, each with its own indexes and its own lock. An entry's shard is chosen by a hash
+ * of its ID or of its name (ignoring case); with name partitioning an entry whose name
+ * changes is moved to its new shard. Changes to different shards never wait for each
+ * other, and searches run on all shards in parallel and merge the results.
+ * <p>
+ * addEntry(), removeEntry() and the searches may be called from several threads at once.
+ * As with AddressBook, the fields of entries in the book must not be changed while other
+ * threads are using it.
+ * <p>
+ * A sharded book is saved as a directory holding one file per shard, in the format of
+ * AddressBook.saveAddressBookToFile(), and a small manifest. The shards are written and
+ * read in parallel from snapshots taken together, and each shard file can also be read on
+ * its own with AddressBook.readAddressBookFromFile().
+ * @author Vangie Shue
+ * @see AddressBook
+ */
+public class ShardedAddressBook {
+
+  /**
+   * The ways entries can be assigned to shards.
+   */
+  public enum Partitioning {
+    /** By a hash of the entry ID, which spreads entries evenly and never moves them. */
+    ENTRY_ID,
+    /** By a hash of the name in lower case, so that entries with the same name share a shard. */
+    NAME
+  }
+
+  static final String MANIFEST_FILE = "shards.properties";
+
+  //Runs the per-shard work of searches, saves and loads; its threads are daemon threads.
+  private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+      new DaemonThreadFactory("ShardedAddressBook worker"));
+
+  private final Partitioning partitioning;
+  private final AddressBook[] shards;
+  private final ReadWriteLock[] locks;
+
+  /**
+   * Creates an empty book with the given number of shards.
+   * @param shardCount the number of shards, at least 1.
+   * @param partitioning how entries are assigned to shards.
+   * @throws IllegalArgumentException if shardCount is less than 1 or partitioning is null.
+   */
+  public ShardedAddressBook(int shardCount, Partitioning partitioning) {
+    this(newShards(shardCount), partitioning);
+  }
+
+  private ShardedAddressBook(AddressBook[] shards, Partitioning partitioning) {
+    if (partitioning == null) {
+      throw new IllegalArgumentException("partitioning cannot be null.");
+    }
+    this.partitioning = partitioning;
+    this.shards = shards;
+    locks = new ReadWriteLock[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      locks[i] = new ReentrantReadWriteLock();
+      if (partitioning == Partitioning.NAME) {
+        shards[i].addObserver(new Rehomer(i));
+      }
+    }
+  }
+
+  private static AddressBook[] newShards(int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("shardCount must be at least 1.");
+    }
+    AddressBook[] shards = new AddressBook[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new AddressBook();
+    }
+    return shards;
+  }
+
+  /**
+   * Moves entries whose name changed to the shard of their new name, holding the write
+   * locks of both shards so that no search or change sees the entry in neither or both.
+   */
+  private class Rehomer implements AddressBookObserver {
+    private final int shard;
+
+    Rehomer(int shard) {
+      this.shard = shard;
+    }
+    @Override
+    public void entryAdded(AddressBookEntry e) {
+    }
+    @Override
+    public void entryRemoved(AddressBookEntry e) {
+    }
+    @Override
+    public void entryChanged(AddressBookEntry e, EntryField field) {
+      if (field != EntryField.NAME) {
+        return;
+      }
+      int target = shardOf(e);
+      if (target != shard) {
+        //Lock both shards in index order, so that two moves in opposite directions
+        //cannot deadlock.
+        ReadWriteLock first = locks[Math.min(shard, target)];
+        ReadWriteLock second = locks[Math.max(shard, target)];
+        first.writeLock().lock();
+        try {
+          second.writeLock().lock();
+          try {
+            shards[shard].removeEntry(e);
+            shards[target].addEntry(e);
+          } finally {
+            second.writeLock().unlock();
+          }
+        } finally {
+          first.writeLock().unlock();
+        }
+      }
+    }
+  }
+
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  public Partitioning getPartitioning() {
+    return partitioning;
+  }
+
+  /**
+   * Any valid (non-null) AddressBookEntry object. Only the entry's shard is locked.
+   * @param e the AddressBookEntry object to be added to the AddressBook.
+   * @return a boolean indicating whether the AddressBook was able to add the contact.
+   */
+  public boolean addEntry(AddressBookEntry e) {
+    if (e == null) {
+      return false;
+    }
+    int shard = shardOf(e);
+    locks[shard].writeLock().lock();
+    try {
+      return shards[shard].addEntry(e);
+    } finally {
+      locks[shard].writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the passed entry object from the AddressBook. Only the entry's shard is locked.
+   * @param e the AddressBookEntry object to be removed from the AddressBook
+   * @return a boolean indicating whether or not the entry was removed.
+   */
+  public boolean removeEntry(AddressBookEntry e) {
+    if (e == null) {
+      return false;
+    }
+    int shard = shardOf(e);
+    locks[shard].writeLock().lock();
+    try {
+      return shards[shard].removeEntry(e);
+    } finally {
+      locks[shard].writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of entries in all shards.
+   * @return int the number of entries.
+   */
+  public int size() {
+    int size = 0;
+    for (int i = 0; i < shards.length; i++) {
+      locks[i].readLock().lock();
+      try {
+        size += shards[i].size();
+      } finally {
+        locks[i].readLock().unlock();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns all entries with a field containing the String, as AddressBook.searchEntries().
+   * @param s the String which we will search every Entry field for match.
+   * @return TreeSet<Entry> the set of all entries that matched the string.
+   */
+  public TreeSet<AddressBookEntry> searchEntries(String s) {
+    return searchEntries(new EntryQuery.QueryBuilder().substring(s).build());
+  }
+
+  /**
+   * Returns all entries matching the query. Every shard is searched in parallel with its
+   * own indexes, and the results are merged in ID order.
+   * @param query the EntryQuery to run.
+   * @return TreeSet<Entry> the set of all entries that matched the query.
+   */
+  public TreeSet<AddressBookEntry> searchEntries(final EntryQuery query) {
+    List<TreeSet<AddressBookEntry>> results = scatter(new ShardTask<TreeSet<AddressBookEntry>>() {
+      @Override
+      public TreeSet<AddressBookEntry> run(AddressBook shard) {
+        return shard.searchEntries(query);
+      }
+    });
+    TreeSet<AddressBookEntry> matches = new TreeSet<AddressBookEntry>();
+    for (TreeSet<AddressBookEntry> result : results) {
+      matches.addAll(result);
+    }
+    return matches;
+  }
+
+  /**
+   * Returns the entries whose name starts with the prefix, ignoring case, in name order, as
+   * AddressBook.searchNamePrefix(). Each shard returns its first limit matches and the
+   * lists are merged.
+   * @param prefix the beginning of the name, e.g. "Sm".
+   * @param limit the maximum number of entries to return.
+   * @return List<Entry> up to limit matching entries ordered by name.
+   * @throws IllegalArgumentException if limit is negative.
+   */
+  public List<AddressBookEntry> searchNamePrefix(final String prefix, final int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit cannot be negative.");
+    }
+    List<List<AddressBookEntry>> results = scatter(new ShardTask<List<AddressBookEntry>>() {
+      @Override
+      public List<AddressBookEntry> run(AddressBook shard) {
+        return shard.searchNamePrefix(prefix, limit);
+      }
+    });
+    List<AddressBookEntry> matches = new ArrayList<AddressBookEntry>();
+    for (List<AddressBookEntry> result : results) {
+      matches.addAll(result);
+    }
+    Collections.sort(matches, new Comparator<AddressBookEntry>() {
+      @Override
+      public int compare(AddressBookEntry a, AddressBookEntry b) {
+        int byName = a.getName().toLowerCase().compareTo(b.getName().toLowerCase());
+        return (byName != 0) ? byName : Integer.compare(a.getEntryID(), b.getEntryID());
+      }
+    });
+    return (matches.size() > limit) ? new ArrayList<AddressBookEntry>(matches.subList(0, limit))
+        : matches;
+  }
+
+  /**
+   * Saves every shard to its own file in the directory, in parallel, followed by a manifest
+   * recording the number of shards and the partitioning. The directory is created if it
+   * does not exist.
+   * <p>
+   * All shards are locked together, in index order, just long enough to take a snapshot of
+   * each, so the files hold one consistent state of the book: an entry moved to another
+   * shard by a name change is saved in exactly one of them. The snapshots are written to
+   * temporary files, and only once every shard has been written are the files moved over
+   * the old ones and the manifest replaced, so a failed save leaves the previous save in
+   * place.
+   * @param directory the directory to save the shards in.
+   * @throws IOException if a shard or the manifest cannot be written.
+   */
+  public void saveAddressBookToDirectory(final String directory) throws IOException {
+    Files.createDirectories(Paths.get(directory));
+    final AddressBookSnapshot[] snapshots = snapshotAll();
+    List<Future<Void>> saves = new ArrayList<Future<Void>>();
+    for (int i = 0; i < shards.length; i++) {
+      final int shard = i;
+      saves.add(EXECUTOR.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          writeTemp(snapshots[shard], shardPath(directory, shard));
+          return null;
+        }
+      }));
+    }
+    try {
+      for (Future<Void> save : saves) {
+        try {
+          await(save);
+        } catch (ClassNotFoundException ex) {
+          //Not reached: saving does not load classes.
+          throw new IOException(ex);
+        }
+      }
+    } catch (IOException ex) {
+      //Wait for the other writes, so that none of their temporary files is left behind.
+      for (int i = 0; i < shards.length; i++) {
+        try {
+          saves.get(i).get();
+        } catch (Exception ignored) {
+          //Already failing with the first exception.
+        }
+        Files.deleteIfExists(tempPath(shardPath(directory, i)));
+      }
+      throw ex;
+    }
+    for (int i = 0; i < shards.length; i++) {
+      moveIntoPlace(shardPath(directory, i));
+    }
+    Properties manifest = new Properties();
+    manifest.setProperty("shards", Integer.toString(shards.length));
+    manifest.setProperty("partitioning", partitioning.name());
+    Path manifestPath = Paths.get(directory, MANIFEST_FILE);
+    OutputStream out = Files.newOutputStream(tempPath(manifestPath));
+    try {
+      manifest.store(out, "ShardedAddressBook");
+    } finally {
+      out.close();
+    }
+    moveIntoPlace(manifestPath);
+  }
+
+  /**
+   * Saves a single shard to its file in the directory, e.g. after a batch of changes that
+   * only touched that shard. The shard is locked while a snapshot of it is taken, and the
+   * snapshot is written to a temporary file that then replaces the shard file.
+   * @param shard the index of the shard, from 0 to getShardCount() - 1.
+   * @param directory the directory the book is saved in.
+   * @throws IOException if the shard cannot be written.
+   */
+  public void saveShard(int shard, String directory) throws IOException {
+    AddressBookSnapshot snapshot;
+    locks[shard].writeLock().lock();
+    try {
+      snapshot = shards[shard].snapshot();
+    } finally {
+      locks[shard].writeLock().unlock();
+    }
+    Path path = shardPath(directory, shard);
+    writeTemp(snapshot, path);
+    moveIntoPlace(path);
+  }
+
+  /*
+   * Takes a snapshot of every shard while holding the write locks of all of them, acquired
+   * in index order like the Rehomer's. The write locks are needed because snapshot()
+   * updates the shard's change tracker.
+   */
+  private AddressBookSnapshot[] snapshotAll() {
+    AddressBookSnapshot[] snapshots = new AddressBookSnapshot[shards.length];
+    int locked = 0;
+    try {
+      for (; locked < shards.length; locked++) {
+        locks[locked].writeLock().lock();
+      }
+      for (int i = 0; i < shards.length; i++) {
+        snapshots[i] = shards[i].snapshot();
+      }
+    } finally {
+      while (locked > 0) {
+        locks[--locked].writeLock().unlock();
+      }
+    }
+    return snapshots;
+  }
+
+  /*
+   * Writes the snapshot to the temporary file of path and forces it to the storage device.
+   */
+  private static void writeTemp(AddressBookSnapshot snapshot, Path path) throws IOException {
+    Path temp = tempPath(path);
+    boolean written = false;
+    try {
+      AddressBookFile.write(temp.toString(), snapshot.getEntries(), snapshot.size(), true,
+          null);
+      written = true;
+    } finally {
+      if (!written) {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  private static void moveIntoPlace(Path path) throws IOException {
+    Files.move(tempPath(path), path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static Path tempPath(Path path) {
+    return path.resolveSibling(path.getFileName() + ".tmp");
+  }
+
+  /**
+   * Reads a book saved with saveAddressBookToDirectory(), reading the shards in parallel.
+   * @param directory the directory the book was saved in.
+   * @return ShardedAddressBook as read from the directory.
+   * @throws IOException if the manifest or a shard file is missing or cannot be read.
+   * @throws ClassNotFoundException if a shard file holds an invalid serialized AddressBook.
+   */
+  public static ShardedAddressBook readAddressBookFromDirectory(final String directory)
+      throws IOException, ClassNotFoundException {
+    Properties manifest = new Properties();
+    InputStream in = Files.newInputStream(Paths.get(directory, MANIFEST_FILE));
+    try {
+      manifest.load(in);
+    } finally {
+      in.close();
+    }
+    int shardCount;
+    Partitioning partitioning;
+    try {
+      shardCount = Integer.parseInt(manifest.getProperty("shards"));
+      partitioning = Partitioning.valueOf(manifest.getProperty("partitioning"));
+    } catch (RuntimeException ex) {
+      throw new IOException("Invalid sharded address book manifest in " + directory, ex);
+    }
+    if (shardCount < 1) {
+      throw new IOException("Invalid sharded address book manifest in " + directory);
+    }
+    List<Future<AddressBook>> reads = new ArrayList<Future<AddressBook>>();
+    for (int i = 0; i < shardCount; i++) {
+      final Path path = shardPath(directory, i);
+      reads.add(EXECUTOR.submit(new Callable<AddressBook>() {
+        @Override
+        public AddressBook call() throws IOException, ClassNotFoundException {
+          return AddressBook.readAddressBookFromFile(path.toString());
+        }
+      }));
+    }
+    AddressBook[] shards = new AddressBook[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = await(reads.get(i));
+    }
+    return new ShardedAddressBook(shards, partitioning);
+  }
+
+  static Path shardPath(String directory, int shard) {
+    return Paths.get(directory, "shard-" + shard);
+  }
+
+  /*
+   * Returns the shard an entry belongs to.
+   */
+  private int shardOf(AddressBookEntry e) {
+    int hash = (partitioning == Partitioning.ENTRY_ID)
+        ? IntKeyTable.hash(e.getEntryID())
+        : IntKeyTable.hash(e.getName().toLowerCase().hashCode());
+    return (hash & Integer.MAX_VALUE) % shards.length;
+  }
+
+  /**
+   * A piece of work done on every shard under its read lock.
+   */
+  private interface ShardTask<T> {
+    public T run(AddressBook shard);
+  }
+
+  /*
+   * Runs the task on every shard, the first one on the calling thread and the others in
+   * parallel on the executor, and returns the results in shard order.
+   */
+  private <T> List<T> scatter(final ShardTask<T> task) {
+    List<Future<T>> futures = new ArrayList<Future<T>>();
+    for (int i = 1; i < shards.length; i++) {
+      final int shard = i;
+      futures.add(EXECUTOR.submit(new Callable<T>() {
+        @Override
+        public T call() {
+          return runLocked(task, shard);
+        }
+      }));
+    }
+    List<T> results = new ArrayList<T>();
+    results.add(runLocked(task, 0));
+    for (Future<T> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while searching the shards.", ex);
+      } catch (ExecutionException ex) {
+        throw unchecked(ex.getCause());
+      }
+    }
+    return results;
+  }
+
+  private <T> T runLocked(ShardTask<T> task, int shard) {
+    locks[shard].readLock().lock();
+    try {
+      return task.run(shards[shard]);
+    } finally {
+      locks[shard].readLock().unlock();
+    }
+  }
+
+  /*
+   * Waits for a save or load, passing on the exception it failed with.
+   */
+  private static <T> T await(Future<T> future) throws IOException, ClassNotFoundException {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while saving or reading the shards.");
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof ClassNotFoundException) {
+        throw (ClassNotFoundException) cause;
+      }
+      throw unchecked(cause);
+    }
+  }
+
+  private static RuntimeException unchecked(Throwable cause) {
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    return new IllegalStateException(cause);
+  }
+}
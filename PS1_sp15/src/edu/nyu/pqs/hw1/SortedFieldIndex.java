@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * SortedFieldIndex keeps the entries of an AddressBook ordered by a key derived from one
+ * of their fields, with entries sharing a key ordered by ID. Prefix lookups and pages of
+ * results cost O(log n + k): one descent of the TreeMap followed by an in-order walk.
+ * Subclasses name the field in the constructor and derive the key from its value by
+ * implementing key().
+ * @author Vangie Shue
+ * @see AddressBook
+ */
+abstract class SortedFieldIndex implements EntryIndex {
+
+  private final EntryField field;
+  private final TreeMap<String, TreeSet<AddressBookEntry>> keys =
+      new TreeMap<String, TreeSet<AddressBookEntry>>();
+
+  SortedFieldIndex(EntryField field) {
+    this.field = field;
+  }
+
+  /**
+   * Derives the key under which an entry with the given field value is indexed.
+   * @param value the value of the indexed field.
+   * @return String the key, or null if the entry should not be indexed.
+   */
+  abstract String key(String value);
+
+  private String key(AddressBookEntry e) {
+    return key(field.getValue(e));
+  }
+
+  @Override
+  public void add(AddressBookEntry e) {
+    addKey(key(e), e);
+  }
+
+  @Override
+  public void remove(AddressBookEntry e) {
+    removeKey(key(e), e);
+  }
+
+  @Override
+  public void update(AddressBookEntry e, EntryField changed, String oldValue) {
+    if (changed != field) {
+      return;
+    }
+    String oldKey = key(oldValue);
+    String newKey = key(e);
+    if (oldKey == null ? newKey != null : !oldKey.equals(newKey)) {
+      removeKey(oldKey, e);
+      addKey(newKey, e);
+    }
+  }
+
+  private void addKey(String key, AddressBookEntry e) {
+    if (key == null) {
+      return;
+    }
+    TreeSet<AddressBookEntry> list = keys.get(key);
+    if (list == null) {
+      list = new TreeSet<AddressBookEntry>();
+      keys.put(key, list);
+    }
+    list.add(e);
+  }
+
+  private void removeKey(String key, AddressBookEntry e) {
+    if (key == null) {
+      return;
+    }
+    TreeSet<AddressBookEntry> list = keys.get(key);
+    if (list != null) {
+      list.remove(e);
+      if (list.isEmpty()) {
+        keys.remove(key);
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    keys.clear();
+  }
+
+  /**
+   * Returns up to limit entries whose key starts with the prefix, in key order.
+   * @param prefix the beginning of the key, already in the form key() produces.
+   * @param limit the maximum number of entries to return.
+   * @return List of the matching entries.
+   */
+  List<AddressBookEntry> prefix(String prefix, int limit) {
+    List<AddressBookEntry> matches = new ArrayList<AddressBookEntry>();
+    for (Map.Entry<String, TreeSet<AddressBookEntry>> group : keys.tailMap(prefix, true).entrySet()) {
+      if (!group.getKey().startsWith(prefix)) {
+        break;
+      }
+      if (!addAll(group.getValue(), matches, limit)) {
+        break;
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Returns up to limit entries that come after the given entry in key order, so that the
+   * last entry of one page can be passed in to get the next page.
+   * @param after the last entry of the previous page, or null for the first page.
+   * @param limit the maximum number of entries to return.
+   * @return List of the entries following after.
+   */
+  List<AddressBookEntry> page(AddressBookEntry after, int limit) {
+    List<AddressBookEntry> matches = new ArrayList<AddressBookEntry>();
+    Map<String, TreeSet<AddressBookEntry>> groups = keys;
+    String afterKey = (after == null) ? null : key(after);
+    if (afterKey != null) {
+      TreeSet<AddressBookEntry> first = keys.get(afterKey);
+      if (first != null && !addAll(first.tailSet(after, false), matches, limit)) {
+        return matches;
+      }
+      groups = keys.tailMap(afterKey, false);
+    }
+    for (TreeSet<AddressBookEntry> group : groups.values()) {
+      if (!addAll(group, matches, limit)) {
+        break;
+      }
+    }
+    return matches;
+  }
+
+  /*
+   * Copies entries into matches until limit is reached. Returns false once it is.
+   */
+  private static boolean addAll(Iterable<AddressBookEntry> group, List<AddressBookEntry> matches,
+      int limit) {
+    for (AddressBookEntry e : group) {
+      if (matches.size() >= limit) {
+        return false;
+      }
+      matches.add(e);
+    }
+    return matches.size() < limit;
+  }
+
+  /**
+   * Indexes entries by their name, ignoring case.
+   */
+  static class NameIndex extends SortedFieldIndex {
+    NameIndex() {
+      super(EntryField.NAME);
+    }
+    @Override
+    String key(String name) {
+      return name.toLowerCase();
+    }
+  }
+
+  /**
+   * Indexes entries by the domain of their email address, ignoring case. Entries without
+   * an email address are not indexed.
+   */
+  static class EmailDomainIndex extends SortedFieldIndex {
+    EmailDomainIndex() {
+      super(EntryField.EMAIL_ADDRESS);
+    }
+    @Override
+    String key(String email) {
+      int at = email.indexOf('@');
+      return (at < 0) ? null : email.substring(at + 1).toLowerCase();
+    }
+  }
+
+  /**
+   * Indexes entries by their phone number as stored. Entries without a phone number
+   * are not indexed.
+   */
+  static class PhoneIndex extends SortedFieldIndex {
+    PhoneIndex() {
+      super(EntryField.PHONE_NUMBER);
+    }
+    @Override
+    String key(String phone) {
+      return phone.isEmpty() ? null : phone;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * StringDictionary gives every distinct String an int code, so that a column of Strings can
+ * be stored as an int[] and each distinct value is kept only once. Codes are reference
+ * counted: once nothing uses a value any more it is dropped and its code is reused.
+ * @author Vangie Shue
+ * @see ColumnarEntryStore
+ */
+class StringDictionary {
+
+  private final Map<String, Integer> codes = new HashMap<String, Integer>();
+  private String[] values = new String[16];
+  private int[] references = new int[16];
+  //Codes of dropped values, reused before new codes are handed out.
+  private int[] freeCodes = new int[16];
+  private int freeCount = 0;
+  private int nextCode = 0;
+
+  /**
+   * Returns the code of the String, adding it to the dictionary if needed, and counts one
+   * more use of it.
+   * @param s the String to encode.
+   * @return int the code of s.
+   */
+  int acquire(String s) {
+    Integer code = codes.get(s);
+    if (code != null) {
+      references[code]++;
+      return code;
+    }
+    int c;
+    if (freeCount > 0) {
+      c = freeCodes[--freeCount];
+    } else {
+      c = nextCode++;
+      if (c == values.length) {
+        values = Arrays.copyOf(values, c * 2);
+        references = Arrays.copyOf(references, c * 2);
+      }
+    }
+    values[c] = s;
+    references[c] = 1;
+    codes.put(s, c);
+    return c;
+  }
+
+  /**
+   * Counts one less use of the code, dropping its value once it is no longer used.
+   * @param code a code returned by acquire().
+   */
+  void release(int code) {
+    if (--references[code] == 0) {
+      codes.remove(values[code]);
+      values[code] = null;
+      if (freeCount == freeCodes.length) {
+        freeCodes = Arrays.copyOf(freeCodes, freeCount * 2);
+      }
+      freeCodes[freeCount++] = code;
+    }
+  }
+
+  String get(int code) {
+    return values[code];
+  }
+
+  /**
+   * Returns the number of distinct Strings currently in the dictionary.
+   * @return int the number of distinct values.
+   */
+  int size() {
+    return codes.size();
+  }
+}
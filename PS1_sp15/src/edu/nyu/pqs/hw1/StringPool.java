@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * StringPool shares one String instance between all entries holding equal field values,
+ * e.g. the same city in many postal addresses or the same note on a group of contacts.
+ * An AddressBook given a pool with setStringPool() replaces each name, postal address,
+ * email address and note with the pooled instance, so the duplicates can be collected.
+ * <p>
+ * The pool only holds its Strings weakly: a value that no entry uses any more is dropped
+ * from the pool by the garbage collector. A pool can be shared by several AddressBooks and
+ * is thread-safe.
+ * @author Vangie Shue
+ * @see AddressBook#setStringPool(StringPool)
+ */
+public class StringPool {
+
+  //Estimated heap size of a String: object header and fields, plus the char[] header.
+  private static final int STRING_OVERHEAD = 24 + 16;
+
+  private final Map<String, WeakReference<String>> pool =
+      new WeakHashMap<String, WeakReference<String>>();
+  private long lookups = 0;
+  private long hits = 0;
+  private long duplicateBytes = 0;
+
+  /**
+   * Returns the pooled String equal to s, adding s to the pool if there is none.
+   * @param s the String to intern.
+   * @return String the pooled instance, or null if s is null.
+   */
+  public synchronized String intern(String s) {
+    if (s == null) {
+      return null;
+    }
+    lookups++;
+    WeakReference<String> ref = pool.get(s);
+    String pooled = (ref == null) ? null : ref.get();
+    if (pooled == null) {
+      pool.put(s, new WeakReference<String>(s));
+      return s;
+    }
+    if (pooled != s) {
+      hits++;
+      duplicateBytes += estimateSize(s);
+    }
+    return pooled;
+  }
+
+  /**
+   * Returns the number of distinct values in the pool.
+   * @return int the number of pooled Strings.
+   */
+  public synchronized int size() {
+    return pool.size();
+  }
+
+  /**
+   * Returns how many Strings have been looked up in the pool.
+   * @return long the number of intern() calls with a non-null String.
+   */
+  public synchronized long getLookupCount() {
+    return lookups;
+  }
+
+  /**
+   * Returns how many looked up Strings were duplicates replaced by a pooled instance.
+   * @return long the number of duplicates found.
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Returns the estimated size of every duplicate String replaced by a pooled instance
+   * since the pool was created. This is a cumulative count, not the current saving: it
+   * never goes down when an entry holding a pooled value is changed or removed, and it
+   * counts duplicates the caller still refers to elsewhere. Use it with getHitCount() to
+   * judge how much a workload repeats itself.
+   * @return long the estimated number of bytes of duplicates found.
+   */
+  public synchronized long getDuplicateBytes() {
+    return duplicateBytes;
+  }
+
+  /*
+   * Rounds the size of the String and its two byte chars up to the 8 byte object alignment.
+   */
+  private static long estimateSize(String s) {
+    return (STRING_OVERHEAD + 2L * s.length() + 7) & ~7L;
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2015, Vangie Shue
+ */
+
+package edu.nyu.pqs.hw1;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * TokenIndex is an inverted index from the words found in an entry's fields to the
+ * entries containing them. A token is a maximal run of letters or digits, compared
+ * without regard to case. The postings of each token are kept ordered by entry ID so
+ * that they can be handed back to the caller in the same order AddressBook uses.
+ * @author Vangie Shue
+ * @see AddressBook
+ */
+class TokenIndex implements EntryIndex {
+
+  private final Map<String, TreeSet<AddressBookEntry>> postings =
+      new HashMap<String, TreeSet<AddressBookEntry>>();
+
+  @Override
+  public void add(AddressBookEntry e) {
+    for (String token : entryTokens(e)) {
+      addPosting(token, e);
+    }
+  }
+
+  @Override
+  public void remove(AddressBookEntry e) {
+    for (String token : entryTokens(e)) {
+      removePosting(token, e);
+    }
+  }
+
+  /**
+   * Adds the entry under the tokens that are new to the field and removes it from those
+   * that left it. A token that left the field is only dropped if no other field of the
+   * entry still holds it; the other fields are only tokenized when that could be so.
+   */
+  @Override
+  public void update(AddressBookEntry e, EntryField field, String oldValue) {
+    Set<String> oldTokens = tokenize(oldValue, new HashSet<String>());
+    Set<String> newTokens = tokenize(field.getValue(e), new HashSet<String>());
+    for (String token : newTokens) {
+      if (!oldTokens.remove(token)) {
+        addPosting(token, e);
+      }
+    }
+    if (oldTokens.isEmpty()) {
+      return;
+    }
+    for (EntryField other : EntryField.values()) {
+      if (other != field) {
+        String value = other.getValue(e);
+        String lower = value.toLowerCase();
+        Set<String> kept = null;
+        for (Iterator<String> i = oldTokens.iterator(); i.hasNext();) {
+          String token = i.next();
+          if (lower.contains(token)) {
+            if (kept == null) {
+              kept = tokenize(value, new HashSet<String>());
+            }
+            if (kept.contains(token)) {
+              i.remove();
+            }
+          }
+        }
+      }
+    }
+    for (String token : oldTokens) {
+      removePosting(token, e);
+    }
+  }
+
+  @Override
+  public void clear() {
+    postings.clear();
+  }
+
+  /**
+   * Returns the entries that contain every token of the query in at least one field.
+   * Only the postings of the query tokens are visited, starting with the shortest one.
+   * @param query the words to look for.
+   * @return TreeSet of the matching entries, empty if the query holds no tokens.
+   */
+  TreeSet<AddressBookEntry> search(String query) {
+    TreeSet<AddressBookEntry> matches = new TreeSet<AddressBookEntry>();
+    List<TreeSet<AddressBookEntry>> lists = new ArrayList<TreeSet<AddressBookEntry>>();
+    TreeSet<AddressBookEntry> shortest = null;
+    for (String token : tokenize(query, new HashSet<String>())) {
+      TreeSet<AddressBookEntry> list = postings.get(token);
+      if (list == null) {
+        return matches;
+      }
+      lists.add(list);
+      if (shortest == null || list.size() < shortest.size()) {
+        shortest = list;
+      }
+    }
+    if (shortest == null) {
+      return matches;
+    }
+    for (AddressBookEntry e : shortest) {
+      boolean inAll = true;
+      for (TreeSet<AddressBookEntry> list : lists) {
+        if (list != shortest && !list.contains(e)) {
+          inAll = false;
+          break;
+        }
+      }
+      if (inAll) {
+        matches.add(e);
+      }
+    }
+    return matches;
+  }
+
+  private void addPosting(String token, AddressBookEntry e) {
+    TreeSet<AddressBookEntry> list = postings.get(token);
+    if (list == null) {
+      list = new TreeSet<AddressBookEntry>();
+      postings.put(token, list);
+    }
+    list.add(e);
+  }
+
+  private void removePosting(String token, AddressBookEntry e) {
+    TreeSet<AddressBookEntry> list = postings.get(token);
+    if (list != null) {
+      list.remove(e);
+      if (list.isEmpty()) {
+        postings.remove(token);
+      }
+    }
+  }
+
+  /*
+   * Collects the distinct tokens of all five fields of the entry.
+   */
+  private static Set<String> entryTokens(AddressBookEntry e) {
+    Set<String> tokens = new HashSet<String>();
+    for (EntryField field : EntryField.values()) {
+      tokenize(field.getValue(e), tokens);
+    }
+    return tokens;
+  }
+
+  /*
+   * Splits the String into lower case runs of letters and digits and adds them to tokens.
+   */
+  static Set<String> tokenize(String s, Set<String> tokens) {
+    int start = -1;
+    for (int i = 0; i <= s.length(); i++) {
+      boolean wordChar = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        tokens.add(s.substring(start, i).toLowerCase());
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,56 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AddressBookExporterTest {
+  private AddressBook book;
+
+  @Before
+  public void executedBeforeEach() {
+    book = new AddressBook();
+    for (int i = 0; i < 3; i++) {
+      AddressBookEntry e = new AddressBookEntry();
+      e.setName("name" + i);
+      book.addEntry(e);
+    }
+  }
+
+  @Test
+  public void testGzipExportLeavesChannelOpen() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    WritableByteChannel channel = Channels.newChannel(bytes);
+    assertEquals(3, AddressBookExporter.exportEntries(book, channel,
+        AddressBookExporter.Format.CSV, true));
+    assertTrue(channel.isOpen());
+    BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())), StandardCharsets.UTF_8));
+    int lines = 0;
+    while (in.readLine() != null) {
+      lines++;
+    }
+    //The header and one line per entry
+    assertEquals(4, lines);
+  }
+
+  @Test
+  public void testPlainExportLeavesChannelOpen() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    WritableByteChannel channel = Channels.newChannel(bytes);
+    AddressBookExporter.exportEntries(book, channel, AddressBookExporter.Format.JSON_LINES,
+        false);
+    assertTrue(channel.isOpen());
+    assertTrue(bytes.toString("UTF-8").startsWith("{\"id\":"));
+  }
+}
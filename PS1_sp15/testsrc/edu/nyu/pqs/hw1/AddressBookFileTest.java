@@ -0,0 +1,144 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AddressBookFileTest {
+  private File file;
+  private AddressBook book;
+  private AddressBookEntry ann;
+
+  @Before
+  public void executedBeforeEach() throws Exception {
+    file = File.createTempFile("book", ".bin");
+    file.deleteOnExit();
+    book = new AddressBook();
+    ann = new AddressBookEntry();
+    ann.setName("Ann Lee");
+    ann.setPostalAddress("12 Lee Road");
+    ann.setPhoneNumber("212-555-0100");
+    ann.setEmailAddress("ann@nyu.edu");
+    ann.setNote("caf\u00e9 friend");
+    book.addEntry(ann);
+    AddressBookEntry empty = new AddressBookEntry();
+    book.addEntry(empty);
+  }
+
+  /*
+   * Overwrites the int at the given offset of the file.
+   */
+  private void writeInt(long offset, int value) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(offset);
+      raf.writeInt(value);
+    } finally {
+      raf.close();
+    }
+  }
+
+  private void assertSameEntry(AddressBookEntry expected, AddressBookEntry actual) {
+    assertEquals(expected.getEntryID(), actual.getEntryID());
+    for (EntryField field : EntryField.values()) {
+      assertEquals(field.getValue(expected), field.getValue(actual));
+    }
+  }
+
+  @Test
+  public void testBinaryRoundTrip() throws Exception {
+    book.saveAddressBookToFile(file.getPath());
+    AddressBook read = AddressBook.readAddressBookFromFile(file.getPath());
+    assertEquals(2, read.size());
+    assertSameEntry(ann, read.getEntry(ann.getEntryID()));
+    assertEquals(1, read.searchEntries("caf\u00e9").size());
+  }
+
+  @Test
+  public void testSerializedMigration() throws Exception {
+    ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
+    try {
+      out.writeObject(book);
+    } finally {
+      out.close();
+    }
+    AddressBook read = AddressBook.readAddressBookFromFile(file.getPath());
+    assertEquals(2, read.size());
+    assertSameEntry(ann, read.getEntry(ann.getEntryID()));
+    //The indexes are rebuilt after deserialization.
+    assertEquals(1, read.searchNamePrefix("ann", 10).size());
+    read.saveAddressBookToFile(file.getPath());
+    assertSameEntry(ann, AddressBook.readAddressBookFromFile(file.getPath())
+        .getEntry(ann.getEntryID()));
+  }
+
+  @Test
+  public void testBadMagic() throws Exception {
+    book.saveAddressBookToFile(file.getPath());
+    writeInt(0, 0x12345678);
+    try {
+      AddressBook.readAddressBookFromFile(file.getPath());
+      fail("A file with an unknown magic number should be rejected.");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().startsWith("Not an address book file"));
+    }
+  }
+
+  @Test
+  public void testBadVersion() throws Exception {
+    book.saveAddressBookToFile(file.getPath());
+    writeInt(4, AddressBookFile.VERSION + 1);
+    try {
+      AddressBook.readAddressBookFromFile(file.getPath());
+      fail("A file of a newer version should be rejected.");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("version"));
+    }
+  }
+
+  @Test
+  public void testHugeLength() throws Exception {
+    book.saveAddressBookToFile(file.getPath());
+    //The name length of the first entry follows the 12 byte header and the entry ID.
+    writeInt(16, 0x7FFFFFF0);
+    try {
+      AddressBook.readAddressBookFromFile(file.getPath());
+      fail("A length past the end of the file should be rejected.");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("Corrupt"));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedFile() throws Exception {
+    book.saveAddressBookToFile(file.getPath());
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(30);
+    } finally {
+      raf.close();
+    }
+    AddressBook.readAddressBookFromFile(file.getPath());
+  }
+
+  @Test
+  public void testHugeLengthInStream() throws Exception {
+    byte[] bytes = {0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0, 'a', 'b'};
+    BinaryReader in = new BinaryReader(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    try {
+      in.readBytes();
+      fail("A length past the end of the stream should be rejected.");
+    } catch (IOException e) {
+      //Reaching the end of the stream is reported before a huge array is allocated.
+    }
+  }
+}
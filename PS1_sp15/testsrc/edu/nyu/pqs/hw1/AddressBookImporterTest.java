@@ -0,0 +1,108 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AddressBookImporterTest {
+  private AddressBook book;
+
+  @Before
+  public void executedBeforeEach() {
+    book = new AddressBook();
+  }
+
+  private ImportResult importText(String text, AddressBookImporter.Format format)
+      throws IOException {
+    return AddressBookImporter.importEntries(book,
+        new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), format);
+  }
+
+  private AddressBookEntry only(String namePrefix) {
+    List<AddressBookEntry> matches = book.searchNamePrefix(namePrefix, 2);
+    assertEquals(1, matches.size());
+    return matches.get(0);
+  }
+
+  @Test
+  public void testCsvQuotedFields() throws Exception {
+    ImportResult result = importText("Name,Postal Address,Phone,E-mail,Notes,Other\r\n"
+        + "\"Lee, Ann\",\"12 Lee Road\nApt 3\",212-555-0100,ann@nyu.edu,"
+        + "\"says \"\"hi\"\"\",x\r\n"
+        + "\n"
+        + "Bob Ray,,,,\n", AddressBookImporter.Format.CSV);
+    assertEquals(2, result.getImportedCount());
+    assertEquals(0, result.getErrorCount());
+    AddressBookEntry ann = only("lee");
+    assertEquals("12 Lee Road\nApt 3", ann.getPostalAddress());
+    assertEquals("ann@nyu.edu", ann.getEmailAddress());
+    assertEquals("says \"hi\"", ann.getNote());
+    assertEquals("", only("bob").getNote());
+  }
+
+  @Test
+  public void testCsvRejectedRows() throws Exception {
+    ImportResult result = importText("name,email\n"
+        + "Ann Lee,not an address\n"
+        + "Bob Ray,bob@nyu.edu\n"
+        + "\"Cy Dunn,cy@nyu.edu\n", AddressBookImporter.Format.CSV);
+    assertEquals(1, result.getImportedCount());
+    assertEquals(2, result.getErrorCount());
+    assertEquals(2, result.getErrors().get(0).getLine());
+    assertTrue(result.getErrors().get(0).getMessage().startsWith("Invalid email"));
+    assertEquals(4, result.getErrors().get(1).getLine());
+    assertEquals("Unterminated quoted field.", result.getErrors().get(1).getMessage());
+    assertEquals(1, book.size());
+  }
+
+  @Test(expected = IOException.class)
+  public void testCsvUnknownHeader() throws Exception {
+    importText("first,second\na,b\n", AddressBookImporter.Format.CSV);
+  }
+
+  @Test(expected = IOException.class)
+  public void testCsvMalformedHeader() throws Exception {
+    importText("\"name,email\n", AddressBookImporter.Format.CSV);
+  }
+
+  @Test
+  public void testVCardFolding() throws Exception {
+    ImportResult result = importText("BEGIN:VCARD\r\n"
+        + "VERSION:3.0\r\n"
+        + "N:Lee;Ann;;;\r\n"
+        + "FN:Ann\r\n"
+        + "  Lee\r\n"
+        + "item1.EMAIL;TYPE=work:ann@nyu.edu\r\n"
+        + "EMAIL:other@nyu.edu\r\n"
+        + "ADR;TYPE=home:;;12 Lee Road;New York;NY;10003;\r\n"
+        + "NOTE:line one\\nline two\\, with comma\r\n"
+        + "END:VCARD\r\n"
+        + "BEGIN:VCARD\r\n"
+        + "N:Ray;Bob;;;\r\n"
+        + "END:VCARD\r\n", AddressBookImporter.Format.VCARD);
+    assertEquals(2, result.getImportedCount());
+    AddressBookEntry ann = only("ann");
+    assertEquals("Ann Lee", ann.getName());
+    assertEquals("ann@nyu.edu", ann.getEmailAddress());
+    assertEquals("12 Lee Road, New York, NY, 10003", ann.getPostalAddress());
+    assertEquals("line one\nline two, with comma", ann.getNote());
+    assertEquals("Bob Ray", only("bob").getName());
+  }
+
+  @Test
+  public void testVCardMissingEnd() throws Exception {
+    ImportResult result = importText("BEGIN:VCARD\nFN:Ann Lee\nEMAIL:bad\nEND:VCARD\n"
+        + "BEGIN:VCARD\nFN:Bob Ray\n", AddressBookImporter.Format.VCARD);
+    assertEquals(0, result.getImportedCount());
+    assertEquals(2, result.getErrorCount());
+    assertEquals(1, result.getErrors().get(0).getLine());
+    assertEquals(5, result.getErrors().get(1).getLine());
+    assertEquals("Card is missing END:VCARD.", result.getErrors().get(1).getMessage());
+  }
+}
@@ -0,0 +1,130 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AddressBookJournalTest {
+  private Path dir;
+  private String snapshot;
+  private String journal;
+
+  @Before
+  public void executedBeforeEach() throws Exception {
+    dir = Files.createTempDirectory("journal");
+    dir.toFile().deleteOnExit();
+    snapshot = dir.resolve("book.bin").toString();
+    journal = dir.resolve("book.journal").toString();
+  }
+
+  private AddressBookEntry add(AddressBook book, String name) {
+    AddressBookEntry e = new AddressBookEntry();
+    e.setName(name);
+    book.addEntry(e);
+    return e;
+  }
+
+  @Test
+  public void testReplay() throws Exception {
+    AddressBookJournal j = AddressBookJournal.open(snapshot, journal);
+    AddressBookEntry ann = add(j.getAddressBook(), "Ann Lee");
+    AddressBookEntry bob = add(j.getAddressBook(), "Bob Ray");
+    ann.setNote("friend");
+    j.getAddressBook().removeEntry(bob);
+    j.close();
+    assertFalse(Files.exists(dir.resolve("book.bin")));
+
+    AddressBook book = AddressBookJournal.open(snapshot, journal).getAddressBook();
+    assertEquals(1, book.size());
+    assertEquals("Ann Lee", book.getEntry(ann.getEntryID()).getName());
+    assertEquals("friend", book.getEntry(ann.getEntryID()).getNote());
+    assertNull(book.getEntry(bob.getEntryID()));
+  }
+
+  @Test
+  public void testTornFinalRecord() throws Exception {
+    AddressBookJournal j = AddressBookJournal.open(snapshot, journal);
+    AddressBookEntry ann = add(j.getAddressBook(), "Ann Lee");
+    ann.setNote("friend");
+    j.close();
+    RandomAccessFile raf = new RandomAccessFile(journal, "rw");
+    try {
+      raf.setLength(raf.length() - 3);
+    } finally {
+      raf.close();
+    }
+
+    j = AddressBookJournal.open(snapshot, journal);
+    AddressBookEntry read = j.getAddressBook().getEntry(ann.getEntryID());
+    assertEquals("Ann Lee", read.getName());
+    assertEquals("", read.getNote());
+    //New records follow the last valid one instead of the torn bytes.
+    read.setNote("colleague");
+    j.close();
+    read = AddressBookJournal.open(snapshot, journal).getAddressBook()
+        .getEntry(ann.getEntryID());
+    assertEquals("colleague", read.getNote());
+  }
+
+  @Test
+  public void testRecoverRotatedJournal() throws Exception {
+    //Write two journals, then put them where a crashed compaction would have left them.
+    String other = dir.resolve("other.journal").toString();
+    AddressBookJournal j = AddressBookJournal.open(snapshot, journal);
+    AddressBookEntry ann = add(j.getAddressBook(), "Ann Lee");
+    j.close();
+    j = AddressBookJournal.open(dir.resolve("other.bin").toString(), other);
+    AddressBookEntry bob = add(j.getAddressBook(), "Bob Ray");
+    j.close();
+    Path old = dir.resolve("book.journal.old");
+    Files.move(dir.resolve("book.journal"), old);
+    Files.move(dir.resolve("other.journal"), dir.resolve("book.journal"));
+
+    j = AddressBookJournal.open(snapshot, journal);
+    assertEquals(2, j.getAddressBook().size());
+    assertFalse(Files.exists(old));
+    j.close();
+    AddressBook fromSnapshot = AddressBook.readAddressBookFromFile(snapshot);
+    assertEquals("Ann Lee", fromSnapshot.getEntry(ann.getEntryID()).getName());
+    assertEquals("Bob Ray", fromSnapshot.getEntry(bob.getEntryID()).getName());
+  }
+
+  @Test
+  public void testBackgroundCompaction() throws Exception {
+    AddressBookJournal j = AddressBookJournal.open(snapshot, journal);
+    j.setCompactionThreshold(2);
+    for (int i = 0; i < 7; i++) {
+      add(j.getAddressBook(), "Name " + i);
+    }
+    j.awaitCompaction();
+    assertTrue(Files.exists(dir.resolve("book.bin")));
+    assertFalse(Files.exists(dir.resolve("book.journal.old")));
+    j.close();
+    assertEquals(7, AddressBookJournal.open(snapshot, journal).getAddressBook().size());
+  }
+
+  @Test
+  public void testCompactionFailureReported() throws Exception {
+    String unwritable = dir.resolve("missing").resolve("book.bin").toString();
+    AddressBookJournal j = AddressBookJournal.open(unwritable, journal);
+    j.setCompactionThreshold(1);
+    add(j.getAddressBook(), "Ann Lee");
+    add(j.getAddressBook(), "Bob Ray");
+    try {
+      j.awaitCompaction();
+      fail("A snapshot that cannot be written should be reported.");
+    } catch (IOException e) {
+      assertEquals("Compaction failed.", e.getMessage());
+    }
+    //Changes are still journaled after the failure.
+    add(j.getAddressBook(), "Cy Dunn");
+    j.close();
+    assertEquals(3, AddressBookJournal.open(snapshot, journal).getAddressBook().size());
+  }
+}
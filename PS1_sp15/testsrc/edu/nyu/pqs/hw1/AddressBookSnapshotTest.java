@@ -0,0 +1,113 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AddressBookSnapshotTest {
+  private AddressBook book;
+  private AddressBookEntry[] entries;
+
+  @Before
+  public void executedBeforeEach() {
+    book = new AddressBook();
+    entries = new AddressBookEntry[5];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = new AddressBookEntry();
+      entries[i].setName("Person " + i);
+      book.addEntry(entries[i]);
+    }
+  }
+
+  @Test
+  public void testUnchangedBookReusesSnapshot() {
+    AddressBookSnapshot first = book.snapshot();
+    assertEquals(5, first.size());
+    assertSame(first, book.snapshot());
+  }
+
+  @Test
+  public void testAddRemoveAndChange() {
+    AddressBookSnapshot first = book.snapshot();
+    AddressBookEntry added = new AddressBookEntry();
+    added.setName("Added");
+    book.addEntry(added);
+    book.removeEntry(entries[0]);
+    entries[2].setName("Changed");
+    AddressBookSnapshot second = book.snapshot();
+
+    assertEquals(5, second.size());
+    assertNull(second.getEntry(entries[0].getEntryID()));
+    assertEquals("Added", second.getEntry(added.getEntryID()).getName());
+    assertEquals("Changed", second.getEntry(entries[2].getEntryID()).getName());
+    //The earlier snapshot is untouched, and unchanged entries are shared.
+    assertEquals("Person 2", first.getEntry(entries[2].getEntryID()).getName());
+    assertNotNull(first.getEntry(entries[0].getEntryID()));
+    assertNull(first.getEntry(added.getEntryID()));
+    assertSame(first.getEntry(entries[1].getEntryID()),
+        second.getEntry(entries[1].getEntryID()));
+    for (int i = 1; i < second.size(); i++) {
+      assertTrue(second.getEntries().get(i - 1).getEntryID()
+          < second.getEntries().get(i).getEntryID());
+    }
+  }
+
+  @Test
+  public void testReAddBetweenSnapshots() {
+    AddressBookSnapshot first = book.snapshot();
+    book.removeEntry(entries[3]);
+    entries[3].setName("Back again");
+    book.addEntry(entries[3]);
+    entries[3].setNote("twice changed");
+    AddressBookSnapshot second = book.snapshot();
+    assertEquals(5, second.size());
+    AddressBookEntry frozen = second.getEntry(entries[3].getEntryID());
+    assertEquals("Back again", frozen.getName());
+    assertEquals("twice changed", frozen.getNote());
+    assertEquals("Person 3", first.getEntry(entries[3].getEntryID()).getName());
+  }
+
+  @Test
+  public void testOverflowFallsBackToFullCopy() {
+    AddressBookSnapshot first = book.snapshot();
+    //More changes than the book has entries, past the initial change buffer.
+    for (int i = 0; i < 40; i++) {
+      entries[0].setNote("note " + i);
+    }
+    book.removeEntry(entries[4]);
+    AddressBookSnapshot second = book.snapshot();
+    assertEquals(4, second.size());
+    assertEquals("note 39", second.getEntry(entries[0].getEntryID()).getNote());
+    assertNull(second.getEntry(entries[4].getEntryID()));
+    //A full copy shares nothing with the previous snapshot.
+    assertFalse(first.getEntry(entries[1].getEntryID())
+        == second.getEntry(entries[1].getEntryID()));
+    //Tracking resumes after the full copy.
+    entries[2].setNote("after");
+    AddressBookSnapshot third = book.snapshot();
+    assertEquals("after", third.getEntry(entries[2].getEntryID()).getNote());
+    assertSame(second.getEntry(entries[1].getEntryID()),
+        third.getEntry(entries[1].getEntryID()));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testFrozenNameSetterThrows() {
+    book.snapshot().getEntry(entries[0].getEntryID()).setName("x");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testFrozenPhoneSetterThrows() {
+    book.snapshot().getEntry(entries[0].getEntryID()).setPhoneNumber("123");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testFrozenEmailSetterThrows() throws Exception {
+    book.snapshot().getEntry(entries[0].getEntryID()).setEmailAddress("a@b.com");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testFrozenEntriesListIsUnmodifiable() {
+    book.snapshot().getEntries().remove(0);
+  }
+}
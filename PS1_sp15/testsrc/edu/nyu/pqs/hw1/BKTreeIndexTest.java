@@ -0,0 +1,102 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BKTreeIndexTest {
+  private AddressBook book;
+
+  @Before
+  public void executedBeforeEach() {
+    book = new AddressBook();
+  }
+
+  private AddressBookEntry add(String name) {
+    AddressBookEntry e = new AddressBookEntry();
+    e.setName(name);
+    book.addEntry(e);
+    return e;
+  }
+
+  @Test
+  public void testClosestFirst() {
+    AddressBookEntry smith = add("John Smith");
+    AddressBookEntry smyth = add("John Smyth");
+    add("Jane Doe");
+    List<AddressBookEntry> matches = book.searchNameFuzzy("Jon Smith", 2);
+    assertEquals(2, matches.size());
+    assertEquals(smith, matches.get(0));
+    assertEquals(smyth, matches.get(1));
+    assertTrue(book.searchNameFuzzy("Jon Smith", 0).isEmpty());
+  }
+
+  @Test
+  public void testIgnoresCase() {
+    AddressBookEntry e = add("Ann Lee");
+    assertEquals(e, book.searchNameFuzzy("ANN LEE", 0).get(0));
+  }
+
+  @Test
+  public void testFollowsChanges() throws Exception {
+    AddressBookEntry e = add("Ann Lee");
+    assertEquals(1, book.searchNameFuzzy("Ann Lee", 1).size());
+    book.updateEntry(e.getEntryID(), EntryField.NAME, "Bob Ray");
+    assertTrue(book.searchNameFuzzy("Ann Lee", 1).isEmpty());
+    assertEquals(e, book.searchNameFuzzy("Bob Ray", 0).get(0));
+    book.removeEntry(e);
+    assertTrue(book.searchNameFuzzy("Bob Ray", 1).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeDistance() {
+    book.searchNameFuzzy("Ann", -1);
+  }
+
+  @Test
+  public void testMatchesScanAfterRebuild() {
+    Random random = new Random(42);
+    BKTreeIndex index = new BKTreeIndex.NameIndex();
+    List<AddressBookEntry> live = new ArrayList<AddressBookEntry>();
+    for (int i = 0; i < 3000; i++) {
+      AddressBookEntry e = new AddressBookEntry();
+      e.setName(randomName(random));
+      index.add(e);
+      live.add(e);
+    }
+    //Removing most entries leaves enough dead keys to rebuild the tree.
+    for (int i = 0; i < 2500; i++) {
+      index.remove(live.remove(live.size() - 1));
+    }
+    for (int q = 0; q < 20; q++) {
+      String query = randomName(random);
+      List<AddressBookEntry> expected = new ArrayList<AddressBookEntry>();
+      for (int d = 0; d <= 2; d++) {
+        for (AddressBookEntry e : live) {
+          if (EditDistance.distance(query, e.getName(), 3) == d) {
+            expected.add(e);
+          }
+        }
+      }
+      List<AddressBookEntry> found = index.search(query, 2);
+      assertEquals(expected.size(), found.size());
+      assertTrue(found.containsAll(expected));
+    }
+  }
+
+  /*
+   * Returns a short lower case name over a small alphabet, so that names are close.
+   */
+  private static String randomName(Random random) {
+    char[] name = new char[4 + random.nextInt(3)];
+    for (int i = 0; i < name.length; i++) {
+      name[i] = (char) ('a' + random.nextInt(4));
+    }
+    return new String(name);
+  }
+}
@@ -0,0 +1,87 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColumnarEntryStoreTest {
+  private File file;
+  private AddressBook book;
+  private AddressBookEntry ann;
+  private AddressBookEntry bob;
+
+  @Before
+  public void executedBeforeEach() throws Exception {
+    file = File.createTempFile("columnar", ".bin");
+    file.deleteOnExit();
+    book = new AddressBook();
+    ann = new AddressBookEntry();
+    ann.setName("Ann Lee");
+    ann.setPhoneNumber("212-555-0100");
+    ann.setEmailAddress("ann@nyu.edu");
+    book.addEntry(ann);
+    bob = new AddressBookEntry();
+    bob.setName("Bob Ray");
+    bob.setPostalAddress("1 Main St");
+    bob.setNote("friend");
+    book.addEntry(bob);
+  }
+
+  @Test
+  public void testReadBinaryFile() throws Exception {
+    book.saveAddressBookToFile(file.getPath());
+    ColumnarEntryStore store = ColumnarEntryStore.readAddressBookFromFile(file.getPath());
+    assertEquals(2, store.size());
+    EntryView view = store.get(ann.getEntryID());
+    assertEquals("Ann Lee", view.getName());
+    assertEquals(ann.getPhoneNumber(), view.getPhoneNumber());
+    assertEquals("ann@nyu.edu", view.getEmailAddress());
+    assertEquals("friend", store.get(bob.getEntryID()).getNote());
+  }
+
+  @Test
+  public void testReadCompressedFile() throws Exception {
+    book.saveCompressedAddressBookToFile(file.getPath());
+    ColumnarEntryStore store = ColumnarEntryStore.readAddressBookFromFile(file.getPath());
+    assertEquals(2, store.size());
+    assertEquals("1 Main St", store.get(bob.getEntryID()).getPostalAddress());
+  }
+
+  @Test
+  public void testLoadedIdsAreReserved() throws Exception {
+    book.saveAddressBookToFile(file.getPath());
+    ColumnarEntryStore.readAddressBookFromFile(file.getPath());
+    assertTrue(new AddressBookEntry().getEntryID() > bob.getEntryID());
+  }
+
+  @Test
+  public void testSearchEntries() throws Exception {
+    ColumnarEntryStore store = ColumnarEntryStore.fromAddressBook(book);
+    List<EntryView> matches = store.searchEntries("R");
+    assertEquals(1, matches.size());
+    assertEquals(bob.getEntryID(), matches.get(0).getEntryID());
+    matches = store.searchEntries(new EntryQuery.QueryBuilder().substring("e").build());
+    assertEquals(2, matches.size());
+    assertEquals(ann.getEntryID(), matches.get(0).getEntryID());
+  }
+
+  @Test
+  public void testSaveRoundTrip() throws Exception {
+    ColumnarEntryStore store = ColumnarEntryStore.fromAddressBook(book);
+    store.remove(ann.getEntryID());
+    store.saveAddressBookToFile(file.getPath());
+    AddressBook read = AddressBook.readAddressBookFromFile(file.getPath());
+    assertEquals(1, read.size());
+    assertEquals("Bob Ray", read.getEntry(bob.getEntryID()).getName());
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotAnAddressBookFile() throws Exception {
+    ColumnarEntryStore.readAddressBookFromFile(file.getPath());
+  }
+}
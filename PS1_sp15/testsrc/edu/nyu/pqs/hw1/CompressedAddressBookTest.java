@@ -0,0 +1,121 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompressedAddressBookTest {
+  private File file;
+  private AddressBook book;
+  private int firstId;
+
+  @Before
+  public void executedBeforeEach() throws Exception {
+    file = File.createTempFile("compressed", ".bin");
+    file.deleteOnExit();
+    book = new AddressBook();
+    //Enough entries for several blocks.
+    for (int i = 0; i < 3000; i++) {
+      AddressBookEntry e = new AddressBookEntry();
+      e.setName("Person " + i);
+      e.setPostalAddress(i + " Broadway, New York, NY 10003");
+      e.setEmailAddress("person" + i + "@nyu.edu");
+      e.setNote("Note number " + i);
+      book.addEntry(e);
+    }
+    firstId = book.getEntries().iterator().next().getEntryID();
+    book.saveCompressedAddressBookToFile(file.getPath());
+  }
+
+  /*
+   * Overwrites one int of the block index row of the first block.
+   */
+  private void corruptFirstRow(int column, int value) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(raf.length() - 8);
+      long indexOffset = raf.readLong();
+      raf.seek(indexOffset + column);
+      raf.writeInt(value);
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    AddressBook read = AddressBook.readAddressBookFromFile(file.getPath());
+    assertEquals(3000, read.size());
+    AddressBookEntry e = read.getEntry(firstId + 1234);
+    assertEquals("Person 1234", e.getName());
+    assertEquals("person1234@nyu.edu", e.getEmailAddress());
+
+    ColumnarEntryStore store = ColumnarEntryStore.readAddressBookFromFile(file.getPath());
+    assertEquals(3000, store.size());
+    assertEquals("Note number 2999", store.get(firstId + 2999).getNote());
+  }
+
+  @Test
+  public void testGetEntry() throws Exception {
+    CompressedAddressBook compressed = CompressedAddressBook.open(file.getPath());
+    try {
+      assertEquals(3000, compressed.size());
+      assertTrue(compressed.getBlockCount() > 1);
+      assertEquals("Person 0", compressed.getEntry(firstId).getName());
+      assertEquals("Person 2999", compressed.getEntry(firstId + 2999).getName());
+      assertEquals("1500 Broadway, New York, NY 10003",
+          compressed.getEntry(firstId + 1500).getPostalAddress());
+      assertNull(compressed.getEntry(firstId - 1));
+      assertNull(compressed.getEntry(firstId + 3000));
+    } finally {
+      compressed.close();
+    }
+  }
+
+  @Test
+  public void testGetEntriesRange() throws Exception {
+    CompressedAddressBook compressed = CompressedAddressBook.open(file.getPath());
+    try {
+      List<AddressBookEntry> range = compressed.getEntries(firstId + 100, firstId + 2900);
+      assertEquals(2800, range.size());
+      for (int i = 0; i < range.size(); i++) {
+        assertEquals(firstId + 100 + i, range.get(i).getEntryID());
+      }
+      assertEquals(5, compressed.getEntries(firstId - 10, firstId + 5).size());
+      assertEquals(0, compressed.getEntries(firstId + 5, firstId + 5).size());
+      assertEquals(0, compressed.getEntries(firstId + 3000, firstId + 4000).size());
+    } finally {
+      compressed.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testNegativeLengthRow() throws Exception {
+    corruptFirstRow(20, -1);
+    CompressedAddressBook.open(file.getPath());
+  }
+
+  @Test(expected = IOException.class)
+  public void testHugeLengthRow() throws Exception {
+    corruptFirstRow(20, Integer.MAX_VALUE);
+    CompressedAddressBook.open(file.getPath());
+  }
+
+  @Test(expected = IOException.class)
+  public void testBlockPastIndexRow() throws Exception {
+    corruptFirstRow(16, Integer.MAX_VALUE);
+    CompressedAddressBook.open(file.getPath());
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorruptRowWhenLoadingBook() throws Exception {
+    corruptFirstRow(4, -5);
+    AddressBook.readAddressBookFromFile(file.getPath());
+  }
+}
@@ -0,0 +1,70 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DuplicateDetectorTest {
+  private AddressBook book;
+  private DuplicateDetector detector;
+
+  @Before
+  public void executedBeforeEach() {
+    book = new AddressBook();
+    detector = new DuplicateDetector();
+  }
+
+  private AddressBookEntry add(String name, String phone, String email) throws Exception {
+    AddressBookEntry e = new AddressBookEntry();
+    e.setName(name);
+    e.setPhoneNumber(phone);
+    e.setEmailAddress(email);
+    book.addEntry(e);
+    return e;
+  }
+
+  @Test
+  public void testPairReportedOnce() throws Exception {
+    AddressBookEntry a = add("Ann Lee", "212-555-0100", "ann@nyu.edu");
+    AddressBookEntry b = add("Ann  Lee", "212-555-0100", "ann@nyu.edu");
+    List<DuplicateDetector.DuplicatePair> pairs = detector.findDuplicates(book);
+    assertEquals(1, pairs.size());
+    assertEquals(a, pairs.get(0).getFirst());
+    assertEquals(b, pairs.get(0).getSecond());
+  }
+
+  @Test
+  public void testNoPairsLostOutsideWindow() throws Exception {
+    AddressBookEntry first = add("Ann Lee", "212-555-0100", "ann@nyu.edu");
+    //Fill the phone block past the window; entries without a name never match.
+    for (int i = 0; i < DuplicateDetector.MAX_BLOCK_SIZE + 50; i++) {
+      add("", "212-555-0100", "");
+    }
+    AddressBookEntry last = add("Ann Lee", "212-555-0100", "ann@nyu.edu");
+    List<DuplicateDetector.DuplicatePair> pairs = detector.findDuplicates(book);
+    assertEquals(1, pairs.size());
+    assertEquals(first, pairs.get(0).getFirst());
+    assertEquals(last, pairs.get(0).getSecond());
+  }
+
+  @Test
+  public void testMergeDuplicates() throws Exception {
+    AddressBookEntry a = add("Ann Lee", "212-555-0100", "ann@nyu.edu");
+    AddressBookEntry b = add("Ann Lee", "212-555-0100", "ann@nyu.edu");
+    b.setNote("friend");
+    add("Bob Ray", "718-555-0199", "bob@nyu.edu");
+    assertEquals(1, detector.mergeDuplicates(book));
+    assertEquals(2, book.size());
+    assertEquals("friend", a.getNote());
+  }
+
+  @Test
+  public void testSoundex() {
+    assertEquals("r163", DuplicateDetector.soundex("robert"));
+    assertEquals("r163", DuplicateDetector.soundex("rupert"));
+    assertNull(DuplicateDetector.soundex("1st"));
+  }
+}
@@ -0,0 +1,90 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntryIndexTest {
+  private AddressBook book;
+  private AddressBookEntry ann;
+
+  @Before
+  public void executedBeforeEach() throws Exception {
+    book = new AddressBook();
+    ann = new AddressBookEntry();
+    ann.setName("Ann Lee");
+    ann.setPostalAddress("12 Lee Road");
+    ann.setPhoneNumber("212-555-0100");
+    ann.setEmailAddress("ann@nyu.edu");
+    ann.setNote("met at work");
+    book.addEntry(ann);
+  }
+
+  @Test
+  public void testTokenLeavesOneFieldOnly() {
+    ann.setName("Ann Kim");
+    //"lee" is still in the postal address.
+    assertEquals(1, book.searchEntriesByToken("lee").size());
+    assertEquals(1, book.searchEntriesByToken("kim").size());
+    ann.setPostalAddress("3 Elm Road");
+    assertTrue(book.searchEntriesByToken("lee").isEmpty());
+  }
+
+  @Test
+  public void testTokenSubstringOfOtherField() throws Exception {
+    ann.setNote("ann");
+    ann.setNote("at home");
+    //"ann" is still a token of the name, and "work" no longer of any field.
+    assertEquals(1, book.searchEntriesByToken("ann").size());
+    assertTrue(book.searchEntriesByToken("work").isEmpty());
+    ann.setNote("annex");
+    ann.setEmailAddress("bo@nyu.edu");
+    ann.setName("Bo Kim");
+    assertTrue(book.searchEntriesByToken("ann").isEmpty());
+  }
+
+  @Test
+  public void testTrigramsFollowField() {
+    ann.setNote("gardener");
+    assertEquals(1, book.searchEntries("garden").size());
+    assertTrue(book.searchEntries("at work").isEmpty());
+    //"Lee" is still in the postal address after it leaves the name.
+    ann.setName("Ann Kim");
+    assertEquals(1, book.searchEntries("Lee").size());
+  }
+
+  @Test
+  public void testSortedIndexesFollowField() throws Exception {
+    ann.setNote("friend");
+    assertEquals(1, book.searchNamePrefix("ann", 10).size());
+    ann.setName("Bo Kim");
+    assertTrue(book.searchNamePrefix("ann", 10).isEmpty());
+    assertEquals(1, book.searchNamePrefix("bo", 10).size());
+    ann.setEmailAddress("bo@cs.nyu.edu");
+    assertTrue(book.searchEmailDomainPrefix("nyu", 10).isEmpty());
+    assertEquals(1, book.searchEmailDomainPrefix("cs.", 10).size());
+    ann.setPhoneNumber("");
+    assertTrue(book.searchPhonePrefix("212", 10).isEmpty());
+  }
+
+  @Test
+  public void testFuzzyIndexFollowsField() {
+    assertEquals(1, book.searchNameFuzzy("An Lee", 1).size());
+    ann.setNote("friend");
+    ann.setName("Bo Kim");
+    assertTrue(book.searchNameFuzzy("An Lee", 1).isEmpty());
+    assertEquals(1, book.searchNameFuzzy("Bo Kym", 1).size());
+  }
+
+  @Test
+  public void testRejectedChangeKeepsIndexes() {
+    try {
+      ann.setEmailAddress("not an address");
+      fail("An invalid email address should be rejected.");
+    } catch (Exception e) {
+      assertEquals(1, book.searchEmailDomainPrefix("nyu", 10).size());
+      assertEquals(1, book.searchEntriesByToken("edu").size());
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class IntIntMapTest {
+  private IntIntMap map;
+
+  @Before
+  public void executedBeforeEach() {
+    map = new IntIntMap();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPutKeyZero() {
+    map.put(0, 7);
+  }
+
+  @Test
+  public void testKeyZeroIsMissing() {
+    map.put(1, 7);
+    assertEquals(IntIntMap.MISSING, map.get(0));
+    assertEquals(IntIntMap.MISSING, map.remove(0));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void testPutReplaces() {
+    map.put(5, 1);
+    map.put(5, 2);
+    assertEquals(2, map.get(5));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void testRemoveKeepsOtherKeys() {
+    for (int i = 1; i <= 1000; i++) {
+      map.put(i, i * 2);
+    }
+    for (int i = 2; i <= 1000; i += 2) {
+      assertEquals(i * 2, map.remove(i));
+    }
+    assertEquals(500, map.size());
+    for (int i = 1; i <= 1000; i++) {
+      assertEquals((i % 2 == 0) ? IntIntMap.MISSING : i * 2, map.get(i));
+    }
+    assertEquals(IntIntMap.MISSING, map.remove(2));
+  }
+}
@@ -0,0 +1,58 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class IntObjectMapTest {
+  private IntObjectMap<String> map;
+
+  @Before
+  public void executedBeforeEach() {
+    map = new IntObjectMap<String>();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPutKeyZero() {
+    map.put(0, "zero");
+  }
+
+  @Test
+  public void testKeyZeroIsMissing() {
+    map.put(1, "one");
+    assertNull(map.get(0));
+    assertNull(map.remove(0));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void testGrowAndRemove() {
+    for (int i = 1; i <= 1000; i++) {
+      map.put(i, "v" + i);
+    }
+    assertEquals(1000, map.size());
+    for (int i = 1; i <= 1000; i += 3) {
+      assertEquals("v" + i, map.remove(i));
+    }
+    for (int i = 1; i <= 1000; i++) {
+      if (i % 3 == 1) {
+        assertNull(map.get(i));
+      } else {
+        assertEquals("v" + i, map.get(i));
+      }
+    }
+    map.put(4, "again");
+    assertEquals("again", map.get(4));
+  }
+
+  @Test
+  public void testClear() {
+    map.put(7, "seven");
+    map.clear();
+    assertEquals(0, map.size());
+    assertNull(map.get(7));
+    map.put(7, "back");
+    assertEquals("back", map.get(7));
+  }
+}
@@ -0,0 +1,102 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ListenerDispatcherTest {
+  private AddressBook book;
+  private BlockingQueue<List<AddressBookEvent>> batches;
+  //Holds the listener inside its first call until the test counts it down.
+  private volatile CountDownLatch release;
+  private AddressBookListener listener;
+
+  @Before
+  public void executedBeforeEach() {
+    book = new AddressBook();
+    batches = new LinkedBlockingQueue<List<AddressBookEvent>>();
+    release = new CountDownLatch(1);
+    listener = new AddressBookListener() {
+      @Override
+      public void entriesChanged(List<AddressBookEvent> events) {
+        //Read the latch first, so that a call already under way keeps waiting on it.
+        CountDownLatch latch = release;
+        batches.add(new ArrayList<AddressBookEvent>(events));
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    book.addListener(listener);
+  }
+
+  private List<AddressBookEvent> nextBatch() throws InterruptedException {
+    List<AddressBookEvent> batch = batches.poll(10, TimeUnit.SECONDS);
+    assertNotNull(batch);
+    return batch;
+  }
+
+  @Test
+  public void testChangesBatchedWhileListenerBusy() throws Exception {
+    AddressBookEntry ann = new AddressBookEntry();
+    book.addEntry(ann);
+    List<AddressBookEvent> first = nextBatch();
+    assertEquals(1, first.size());
+    assertEquals(AddressBookEvent.Type.ADDED, first.get(0).getType());
+
+    //The listener is still busy, so these are queued into one batch.
+    ann.setName("Ann Lee");
+    ann.setNote("friend");
+    AddressBookEntry bob = new AddressBookEntry();
+    book.addEntry(bob);
+    bob.setName("Bob Ray");
+    release.countDown();
+
+    List<AddressBookEvent> second = nextBatch();
+    assertEquals(2, second.size());
+    assertEquals(AddressBookEvent.Type.UPDATED, second.get(0).getType());
+    assertEquals(ann.getEntryID(), second.get(0).getEntryID());
+    assertEquals(EnumSet.of(EntryField.NAME, EntryField.NOTE),
+        second.get(0).getChangedFields());
+    assertEquals(AddressBookEvent.Type.ADDED, second.get(1).getType());
+    assertEquals(bob.getEntryID(), second.get(1).getEntryID());
+  }
+
+  @Test
+  public void testRemovedEntryNotMerged() throws Exception {
+    release.countDown();
+    AddressBookEntry ann = new AddressBookEntry();
+    book.addEntry(ann);
+    nextBatch();
+    release = new CountDownLatch(1);
+    ann.setName("Ann Lee");
+    book.removeEntry(ann);
+    List<AddressBookEvent> events = new ArrayList<AddressBookEvent>();
+    while (events.size() < 2) {
+      events.addAll(nextBatch());
+      release.countDown();
+    }
+    assertEquals(AddressBookEvent.Type.UPDATED, events.get(0).getType());
+    assertEquals(AddressBookEvent.Type.REMOVED, events.get(1).getType());
+    assertTrue(events.get(1).getChangedFields().isEmpty());
+  }
+
+  @Test
+  public void testAddAndRemoveListener() {
+    assertFalse(book.addListener(listener));
+    assertFalse(book.addListener(null));
+    assertTrue(book.removeListener(listener));
+    assertFalse(book.removeListener(listener));
+  }
+}
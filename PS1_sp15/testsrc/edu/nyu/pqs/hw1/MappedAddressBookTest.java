@@ -0,0 +1,80 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedAddressBookTest {
+  private File file;
+  private AddressBookEntry entry;
+
+  @Before
+  public void executedBeforeEach() throws Exception {
+    file = File.createTempFile("mapped", ".bin");
+    file.deleteOnExit();
+    AddressBook book = new AddressBook();
+    entry = new AddressBookEntry();
+    entry.setName("V X");
+    entry.setEmailAddress("v@nyu.edu");
+    book.addEntry(entry);
+    book.saveAddressBookToFile(file.getPath());
+  }
+
+  /*
+   * Overwrites the length of the name of the first entry, which follows the 12 byte header
+   * and the entry ID.
+   */
+  private void writeNameLength(int length) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(16);
+      raf.writeInt(length);
+    } finally {
+      raf.close();
+    }
+  }
+
+  @Test
+  public void testGetEntry() throws Exception {
+    MappedAddressBook mapped = MappedAddressBook.open(file.getPath());
+    assertEquals(1, mapped.size());
+    assertEquals("V X", mapped.getEntry(entry.getEntryID()).getName());
+    assertEquals("v@nyu.edu", mapped.getEntryAt(0).getEmailAddress());
+    assertNull(mapped.getEntry(entry.getEntryID() + 1));
+  }
+
+  @Test
+  public void testNegativeLength() throws Exception {
+    writeNameLength(-5);
+    MappedAddressBook mapped = MappedAddressBook.open(file.getPath());
+    try {
+      mapped.getEntryAt(0);
+      fail("A negative length should be reported as a corrupt file.");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("offset 16"));
+    }
+  }
+
+  @Test
+  public void testLengthPastEnd() throws Exception {
+    writeNameLength(Integer.MAX_VALUE);
+    MappedAddressBook mapped = MappedAddressBook.open(file.getPath());
+    try {
+      mapped.getEntry(entry.getEntryID());
+      fail("A length past the end of the entries should be reported as a corrupt file.");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("offset 16"));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testIteratorWrapsCorruption() throws Exception {
+    writeNameLength(-1);
+    MappedAddressBook.open(file.getPath()).iterator().next();
+  }
+}
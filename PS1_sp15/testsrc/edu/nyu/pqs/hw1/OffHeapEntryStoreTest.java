@@ -0,0 +1,86 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OffHeapEntryStoreTest {
+  private File file;
+  private AddressBook book;
+
+  @Before
+  public void executedBeforeEach() throws Exception {
+    file = File.createTempFile("offheap", ".bin");
+    file.deleteOnExit();
+    book = new AddressBook();
+    for (int i = 0; i < 100; i++) {
+      AddressBookEntry e = new AddressBookEntry();
+      e.setName("Name " + i);
+      e.setNote((i % 10 == 0) ? "tenth" : "");
+      book.addEntry(e);
+    }
+  }
+
+  @Test
+  public void testReadBinaryFile() throws Exception {
+    book.saveAddressBookToFile(file.getPath());
+    OffHeapEntryStore store = OffHeapEntryStore.readAddressBookFromFile(file.getPath());
+    assertEquals(100, store.size());
+    for (AddressBookEntry e : book.getEntries()) {
+      assertEquals(e.getName(), store.get(e.getEntryID()).getName());
+    }
+    assertTrue(store.liveBytes() > 0);
+  }
+
+  @Test
+  public void testReadCompressedFile() throws Exception {
+    book.saveCompressedAddressBookToFile(file.getPath());
+    OffHeapEntryStore store = OffHeapEntryStore.readAddressBookFromFile(file.getPath());
+    assertEquals(100, store.size());
+    assertEquals(10, store.searchEntries("tenth").size());
+  }
+
+  @Test
+  public void testSearchIsInIdOrder() throws Exception {
+    OffHeapEntryStore store = OffHeapEntryStore.fromAddressBook(book);
+    List<EntryView> matches = store.searchEntries(
+        new EntryQuery.QueryBuilder().prefix("Name").build());
+    assertEquals(100, matches.size());
+    for (int i = 1; i < matches.size(); i++) {
+      assertTrue(matches.get(i - 1).getEntryID() < matches.get(i).getEntryID());
+    }
+  }
+
+  @Test
+  public void testSaveRoundTrip() throws Exception {
+    OffHeapEntryStore store = OffHeapEntryStore.fromAddressBook(book);
+    AddressBookEntry first = book.getEntries().iterator().next();
+    store.remove(first.getEntryID());
+    store.saveAddressBookToFile(file.getPath());
+    MappedAddressBook mapped = MappedAddressBook.open(file.getPath());
+    assertEquals(99, mapped.size());
+    assertNull(mapped.getEntry(first.getEntryID()));
+    OffHeapEntryStore read = OffHeapEntryStore.readAddressBookFromFile(file.getPath());
+    assertEquals(99, read.size());
+  }
+
+  @Test
+  public void testIndexFollowsChanges() throws Exception {
+    OffHeapEntryStore store = OffHeapEntryStore.fromAddressBook(book);
+    AddressBookEntry first = book.getEntries().iterator().next();
+    first.setNote("moved");
+    store.add(first);
+    assertEquals(9, store.searchEntries("tenth").size());
+    assertEquals(1, store.searchEntries("moved").size());
+    store.remove(first.getEntryID());
+    assertEquals(0, store.searchEntries("moved").size());
+    assertEquals(11, store.searchEntries("Name 1").size());
+    assertEquals(0, store.searchEntries("Name 100").size());
+    assertEquals(1, store.searchEntries(
+        new EntryQuery.QueryBuilder().exact("Name 42").build()).size());
+  }
+}
@@ -0,0 +1,57 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class ParallelSearchTest {
+
+  /*
+   * Creates a book of n entries; every seventh entry has a note containing "match".
+   */
+  private static AddressBook createBook(int n) {
+    AddressBook book = new AddressBook();
+    for (int i = 0; i < n; i++) {
+      AddressBookEntry e = new AddressBookEntry();
+      e.setName("name" + i);
+      e.setNote(i % 7 == 0 ? "a match " + i : "none");
+      book.addEntry(e);
+    }
+    return book;
+  }
+
+  @Test
+  public void testBelowThresholdMatchesSequential() {
+    //Below the threshold the search runs on the calling thread.
+    AddressBook book = createBook(ParallelSearch.PARALLEL_THRESHOLD - 1);
+    EntryQuery query = new EntryQuery.QueryBuilder().fields(EntryField.NOTE)
+        .regex("match \\d+5$").build();
+    TreeSet<AddressBookEntry> expected = book.searchEntries(query);
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, book.parallelSearchEntries(query));
+  }
+
+  @Test
+  public void testAboveThresholdMatchesSequential() {
+    //Large enough to be split into several fork/join pieces.
+    AddressBook book = createBook(ParallelSearch.PARALLEL_THRESHOLD * 3);
+    EntryQuery query = new EntryQuery.QueryBuilder().fields(EntryField.NOTE)
+        .regex("match \\d+5$").build();
+    TreeSet<AddressBookEntry> expected = book.searchEntries(query);
+    TreeSet<AddressBookEntry> actual = book.parallelSearchEntries(query);
+    assertEquals(expected, actual);
+    //The pieces are joined back together in ID order.
+    assertEquals(expected.first(), actual.first());
+    assertEquals(expected.last(), actual.last());
+  }
+
+  @Test
+  public void testNoMatches() {
+    AddressBook book = createBook(ParallelSearch.PARALLEL_THRESHOLD * 2);
+    EntryQuery query = new EntryQuery.QueryBuilder().regex("^nothing$").build();
+    assertTrue(book.parallelSearchEntries(query).isEmpty());
+    assertTrue(new AddressBook().parallelSearchEntries(query).isEmpty());
+  }
+}
@@ -0,0 +1,38 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhoneNumberTest {
+  private PhoneNumber phone;
+
+  @Before
+  public void executedBeforeEach() {
+    phone = new PhoneNumber("+1 (212) 555-0100,,22");
+  }
+
+  @Test
+  public void testCanonicalNumber() {
+    assertEquals("+12125550100", phone.getCanonicalNumber());
+    assertEquals(PhoneNumber.canonicalize("+12125550100"), phone.getCanonicalNumber());
+  }
+
+  @Test
+  public void testCanonicalNumberFollowsSetter() {
+    assertEquals("+12125550100", phone.getCanonicalNumber());
+    phone.setPhoneNumber("718-555-0199");
+    assertEquals("7185550199", phone.getCanonicalNumber());
+    phone.setPhoneNumber("");
+    assertEquals("", phone.getCanonicalNumber());
+  }
+
+  @Test
+  public void testInvalidCharactersDropped() {
+    phone.setPhoneNumber("212x555y0100");
+    assertEquals("2125550100", phone.getPhoneNumber());
+    String valid = "+12125550100";
+    assertSame(valid, PhoneNumber.convertToPhoneNumber(valid));
+  }
+}
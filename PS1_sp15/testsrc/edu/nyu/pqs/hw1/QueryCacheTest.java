@@ -0,0 +1,90 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryCacheTest {
+  private AddressBook book;
+  private QueryCache cache;
+  private AddressBookEntry ann;
+
+  @Before
+  public void executedBeforeEach() {
+    book = new AddressBook();
+    cache = new QueryCache(100);
+    book.setQueryCache(cache);
+    ann = new AddressBookEntry();
+    ann.setName("Ann Lee");
+    book.addEntry(ann);
+  }
+
+  @Test
+  public void testRepeatedSearchHits() {
+    assertEquals(1, book.searchEntries("Ann").size());
+    assertEquals(1, book.searchEntries("Ann").size());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testInvalidatedByUpdateEntry() throws Exception {
+    assertEquals(1, book.searchEntries("Ann").size());
+    book.updateEntry(ann.getEntryID(), EntryField.NAME, "Bob Ray");
+    assertTrue(book.searchEntries("Ann").isEmpty());
+    assertEquals(1, book.searchEntries("Bob").size());
+    assertEquals(1, cache.getInvalidationCount());
+  }
+
+  @Test
+  public void testInvalidatedBySetter() {
+    assertEquals(1, book.searchEntries("Ann").size());
+    ann.setName("Bob Ray");
+    assertTrue(book.searchEntries("Ann").isEmpty());
+  }
+
+  @Test
+  public void testInvalidatedByAddAndRemove() {
+    assertEquals(1, book.searchEntries("Lee").size());
+    AddressBookEntry other = new AddressBookEntry();
+    other.setName("Sam Lee");
+    book.addEntry(other);
+    assertEquals(2, book.searchEntries("Lee").size());
+    book.removeEntry(ann);
+    assertEquals(1, book.searchEntries("Lee").size());
+  }
+
+  @Test
+  public void testResultIsACopy() {
+    TreeSet<AddressBookEntry> result = book.searchEntries("Ann");
+    result.clear();
+    assertEquals(1, book.searchEntries("Ann").size());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    QueryCache small = new QueryCache(4);
+    TreeSet<AddressBookEntry> one = new TreeSet<AddressBookEntry>();
+    one.add(ann);
+    EntryQuery a = new EntryQuery.QueryBuilder().substring("a").build();
+    EntryQuery b = new EntryQuery.QueryBuilder().substring("b").build();
+    EntryQuery c = new EntryQuery.QueryBuilder().substring("c").build();
+    small.put(a, 0, one);
+    small.put(b, 0, one);
+    assertNotNull(small.get(a, 0));
+    small.put(c, 0, one);
+    assertEquals(2, small.size());
+    assertNull(small.get(b, 0));
+    assertNotNull(small.get(a, 0));
+    assertEquals(1, small.getEvictionCount());
+    assertEquals(4, small.getWeight());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroMaxWeight() {
+    new QueryCache(0);
+  }
+}
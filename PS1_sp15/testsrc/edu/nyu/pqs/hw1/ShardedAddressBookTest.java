@@ -0,0 +1,97 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardedAddressBookTest {
+  private ShardedAddressBook book;
+  private File directory;
+
+  @Before
+  public void executedBeforeEach() throws Exception {
+    book = new ShardedAddressBook(4, ShardedAddressBook.Partitioning.NAME);
+    for (int i = 0; i < 40; i++) {
+      AddressBookEntry e = new AddressBookEntry();
+      e.setName("Person " + i);
+      e.setNote((i % 4 == 0) ? "team" : "");
+      book.addEntry(e);
+    }
+    directory = Files.createTempDirectory("shards").toFile();
+    directory.deleteOnExit();
+  }
+
+  /*
+   * Counts the entries saved in all shard files of the directory.
+   */
+  private int savedEntryCount() throws Exception {
+    int count = 0;
+    for (int i = 0; i < book.getShardCount(); i++) {
+      String path = ShardedAddressBook.shardPath(directory.getPath(), i).toString();
+      count += AddressBook.readAddressBookFromFile(path).size();
+    }
+    return count;
+  }
+
+  @Test
+  public void testScatterGather() {
+    assertEquals(40, book.size());
+    assertEquals(10, book.searchEntries("team").size());
+    List<AddressBookEntry> prefix = book.searchNamePrefix("person 1", 5);
+    assertEquals(5, prefix.size());
+    assertEquals("Person 1", prefix.get(0).getName());
+    assertEquals("Person 10", prefix.get(1).getName());
+    assertEquals("Person 13", prefix.get(4).getName());
+  }
+
+  @Test
+  public void testRehoming() throws Exception {
+    for (AddressBookEntry e : book.searchEntries("team")) {
+      e.setName(e.getName() + " moved");
+    }
+    assertEquals(40, book.size());
+    assertEquals(40, book.searchNamePrefix("person", 40).size());
+    assertEquals(10, book.searchEntries("moved").size());
+    //removeEntry() only looks in the shard of the current name, so it finds moved entries.
+    for (AddressBookEntry e : book.searchEntries("moved")) {
+      assertTrue(book.removeEntry(e));
+    }
+    assertEquals(30, book.size());
+  }
+
+  @Test
+  public void testDirectoryRoundTrip() throws Exception {
+    book.saveAddressBookToDirectory(directory.getPath());
+    for (AddressBookEntry e : book.searchEntries("team")) {
+      e.setName("Renamed " + e.getEntryID());
+    }
+    book.saveAddressBookToDirectory(directory.getPath());
+    assertEquals(40, savedEntryCount());
+    for (String name : directory.list()) {
+      assertFalse(name.endsWith(".tmp"));
+    }
+    ShardedAddressBook read = ShardedAddressBook.readAddressBookFromDirectory(
+        directory.getPath());
+    assertEquals(4, read.getShardCount());
+    assertEquals(ShardedAddressBook.Partitioning.NAME, read.getPartitioning());
+    assertEquals(40, read.size());
+    assertEquals(10, read.searchNamePrefix("renamed", 40).size());
+  }
+
+  @Test
+  public void testSaveShard() throws Exception {
+    book.saveAddressBookToDirectory(directory.getPath());
+    AddressBookEntry e = new AddressBookEntry();
+    e.setName("Person 40");
+    book.addEntry(e);
+    for (int i = 0; i < book.getShardCount(); i++) {
+      book.saveShard(i, directory.getPath());
+    }
+    assertEquals(41, savedEntryCount());
+  }
+}
@@ -0,0 +1,52 @@
+package edu.nyu.pqs.hw1;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class StringPoolTest {
+  private StringPool pool;
+
+  @Before
+  public void executedBeforeEach() {
+    pool = new StringPool();
+  }
+
+  @Test
+  public void testInternSharesInstances() {
+    String first = new String("New York");
+    assertSame(first, pool.intern(first));
+    assertSame(first, pool.intern(new String("New York")));
+    assertNull(pool.intern(null));
+    assertEquals(1, pool.size());
+    assertEquals(2, pool.getLookupCount());
+    assertEquals(1, pool.getHitCount());
+  }
+
+  @Test
+  public void testDuplicateBytesIsCumulative() {
+    String first = new String("New York");
+    pool.intern(first);
+    pool.intern(first);
+    assertEquals(0, pool.getDuplicateBytes());
+    pool.intern(new String("New York"));
+    long once = pool.getDuplicateBytes();
+    assertTrue(once > 0);
+    pool.intern(new String("New York"));
+    assertEquals(2 * once, pool.getDuplicateBytes());
+  }
+
+  @Test
+  public void testBookInternsFields() {
+    AddressBook book = new AddressBook();
+    book.setStringPool(pool);
+    AddressBookEntry a = new AddressBookEntry();
+    a.setNote(new String("family"));
+    AddressBookEntry b = new AddressBookEntry();
+    b.setNote(new String("family"));
+    book.addEntry(a);
+    book.addEntry(b);
+    assertSame(a.getNote(), b.getNote());
+  }
+}